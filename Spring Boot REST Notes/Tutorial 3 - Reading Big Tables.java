@@ -0,0 +1,835 @@
+/* Reading the `student` table when it has millions of rows
+    * Everything in Tutorial 2 / Summary REST.java uses `studentRepository.findAll()` -> loads the WHOLE table into one List<Student> -> serializes it all at once
+    * Fine for Tom and Alex. With a few million rows = gigabytes of heap + GC pauses on every GET
+    * Each LVL below is a different way to read without holding the whole table in memory
+
+--------------------------------------- LVL 1 - Keyset Pagination (?after=<id>&limit=<n>) ---------------------------------------
+    * OFFSET pagination (`LIMIT 50 OFFSET 2000000`) still makes the db walk past the 2,000,000 skipped rows -> gets slower the deeper u page
+    * KEYSET pagination: remember the last id u saw -> next page is `WHERE id > lastId ORDER BY id LIMIT n`
+        - id is the @Id (primary key from `student_sequence`) -> already indexed -> every page is an index range scan, page 1 and page 40,000 cost the same
+        - The "cursor" the client sends back is just the id of the last Student on the page
+    * Hard MAX_PAGE_SIZE on the server -> no client can ask for the whole table again (limit=99999999 gets clamped)
+
+    Request/Response:
+        GET api/v1/student                          -> first page (default limit)
+        GET api/v1/student?after=1500&limit=100     -> next 100 students with id > 1500
+        { "students": [...], "nextCursor": 1600 }   -> nextCursor = null when there are no more pages                              */
+
+    // 1) Page Response (DTO)...................................................... MainPackage/StudentPackage/StudentPage.java
+        public record StudentPage(List<Student> students, Long nextCursor) {}          //! record = immutable class with constructor + getters made for us. Jackson turns it into { "students": [...], "nextCursor": ... }
+
+    // 2) Repository............................................................... MainPackage/StudentPackage/StudentRepository.java
+        @Repository
+        public interface StudentRepository extends JpaRepository<Student, Long> {
+            @Query("SELECT s FROM Student s WHERE s.email = ?1")
+            Optional<Student> findStudentByEmail(String email);
+
+            @Query("SELECT s FROM Student s WHERE s.id > ?1 ORDER BY s.id")            //! KEYSET query. `s.id > ?1` + `ORDER BY s.id` -> db uses the primary key index, never scans skipped rows
+            List<Student> findStudentsAfter(Long afterId, Pageable pageable);           //! Pageable here only adds the LIMIT (always pass PageRequest.of(0, n) -> page 0 so there is no OFFSET)
+        }
+
+    // 3) Service.................................................................. MainPackage/StudentPackage/StudentService.java
+        @Service
+        public class StudentService {
+            public static final int DEFAULT_PAGE_SIZE = 50;
+            public static final int MAX_PAGE_SIZE = 500;                                //! HARD server side max. Whatever the client asks for, we never load more than this per request
+
+            // Injecting Repository Dependency & Constructor...
+
+            // GET Endpoint METHOD (replaces `return studentRepository.findAll();`)
+            @Transactional(readOnly = true)                                             // readOnly -> Hibernate skips dirty checking snapshots for the loaded Students
+            public StudentPage getStudents(Long after, Integer limit){
+                int pageSize = (limit == null) ? DEFAULT_PAGE_SIZE                      // 1) no limit -> default
+                             : Math.max(1, Math.min(limit, MAX_PAGE_SIZE));             //    limit -> clamp to [1, MAX_PAGE_SIZE]
+                long afterId = (after == null) ? 0L : after;                            // 2) no cursor -> start before the first id (sequence starts at 1)
+
+                List<Student> students = studentRepository.findStudentsAfter(          // 3) Ask for ONE extra row -> if it comes back, we know there is a next page (no COUNT(*) query needed)
+                        afterId, PageRequest.of(0, pageSize + 1)
+                );
+                if (students.size() <= pageSize){
+                    return new StudentPage(students, null);                             // 4) last page -> nextCursor = null
+                }
+                List<Student> page = students.subList(0, pageSize);                     // 5) drop the extra row -> cursor is the id of the last Student we actually return
+                return new StudentPage(page, page.get(pageSize - 1).getId());
+            }
+        }
+
+    // 4) Controller............................................................... MainPackage/StudentPackage/StudentController.java
+        @RestController
+        @RequestMapping(path = "api/v1/student")
+        public class StudentController {
+            // Injecting Service Dependency & Constructor...
+
+            @GetMapping                                                                 //! GET api/v1/student?after=1500&limit=100
+            public StudentPage getStudents(
+                    @RequestParam(required = false) Long after,                         //! @RequestParam(required = false) -> null if the client didnt send it (first page)
+                    @RequestParam(required = false) Integer limit){
+                return studentService.getStudents(after, limit);
+            }
+        }
+
+    // Client loop to read everything (page by page, never more than MAX_PAGE_SIZE in memory):
+        Long cursor = null;
+        do {
+            StudentPage page = getPage(cursor, 500);                                    // GET api/v1/student?after=<cursor>&limit=500
+            process(page.students());
+            cursor = page.nextCursor();
+        } while (cursor != null);
+
+
+/*--------------------------------------- LVL 2 - Streaming Export as NDJSON (GET api/v1/student/stream) ---------------------------------------
+    * Pagination is for UIs. For "give me everything" (exports, other services) we stream instead:
+        DB --(cursor, 500 rows at a time)--> Stream<Student> --(one Student at a time)--> JSON line --> response
+    * NDJSON = newline delimited JSON -> one Student object per line, no surrounding [ ] -> client can parse line by line as it arrives
+        {"id":1,"name":"Tom","email":"Tommy@gmail.com","dob":"2000-01-05","age":26}
+        {"id":2,"name":"Alex","email":"Alex@gmail.com","dob":"2001-01-18","age":25}
+    * Why heap stays flat:
+        1) JDBC fetch size -> driver pulls 500 rows per round trip instead of the whole result set (!Postgres only honours it inside a transaction -> autocommit off -> need @Transactional)
+        2) Stream<Student> from the repository -> Hibernate makes each Student only when we ask for the next one
+        3) entityManager.detach(student) after writing -> the persistence context (1st level cache) doesnt keep every Student until the request ends (findAll() does!)
+        4) Jackson writes each Student straight into the response OutputStream -> no big String / byte[] for the whole list
+    * First byte goes out as soon as the first rows are written + flushed -> client doesnt wait for the whole table                    */
+
+    // 1) Repository............................................................... MainPackage/StudentPackage/StudentRepository.java
+        @Repository
+        public interface StudentRepository extends JpaRepository<Student, Long> {
+            // findStudentByEmail, findStudentsAfter...
+
+            @QueryHints({
+                @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),       //! JDBC fetch size -> driver uses a db cursor, 500 rows per round trip
+                @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")        //! read only -> Hibernate doesnt keep a snapshot copy of each Student for dirty checking
+            })
+            @Query("SELECT s FROM Student s ORDER BY s.id")
+            Stream<Student> streamAllStudents();                                        //! Stream<Student> instead of List<Student>. MUST be used inside a transaction and MUST be closed (try-with-resources)
+        }
+
+    // 2) Service.................................................................. MainPackage/StudentPackage/StudentService.java
+        @Service
+        public class StudentService {
+            public static final int STREAM_FLUSH_EVERY = 500;
+
+            private final StudentRepository studentRepository;
+            private final EntityManager entityManager;                                  //! Need the EntityManager to detach Students after writing them
+            private final ObjectMapper objectMapper;                                    //! Spring Boot's own Jackson ObjectMapper (same settings as the normal JSON endpoints, e.g. LocalDate -> "2000-01-05")
+            @Autowired
+            public StudentService(StudentRepository studentRepository, EntityManager entityManager, ObjectMapper objectMapper){
+                this.studentRepository = studentRepository;
+                this.entityManager = entityManager;
+                this.objectMapper = objectMapper;
+            }
+
+            @Transactional(readOnly = true)                                             //! Stream has to be read while the transaction (and the db cursor) is still open
+            public void streamStudents(OutputStream out) throws IOException {
+                ObjectWriter writer = objectMapper.writer()
+                        .withRootValueSeparator("\n")                                 // 1) "\n" between root values -> NDJSON (default separator is a space -> lines 2..N would start with " ")
+                        .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)          //    dont flush after every Student, we flush every 500 ourselves
+                        .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);              //    closing the writer must not close the response stream (Spring does that)
+                try (SequenceWriter sequence = writer.writeValues(out);                 // 2) Jackson writer on top of the response stream (no intermediate String), closed at the end
+                     Stream<Student> students = studentRepository.streamAllStudents()){ // 3) try-with-resources -> closes the ResultSet/cursor even if the client disconnects
+                    Iterator<Student> iterator = students.iterator();                   //    (iterator instead of forEach since write throws IOException)
+                    int written = 0;
+                    while (iterator.hasNext()){
+                        Student student = iterator.next();
+                        sequence.write(student);                                        // 4) write one Student as JSON (+ "\n" before the next one)
+                        entityManager.detach(student);                                  // 5) forget it -> GC can collect it right away
+                        if (++written % STREAM_FLUSH_EVERY == 0){
+                            sequence.flush();                                           // 6) push bytes to the client every 500 rows (first flush happens right after the first batch)
+                        }
+                    }
+                    sequence.flush();
+                }
+            }
+        }
+
+    // 3) Controller............................................................... MainPackage/StudentPackage/StudentController.java
+        @RestController
+        @RequestMapping(path = "api/v1/student")
+        public class StudentController {
+            // Injecting Service Dependency & Constructor...
+
+            @GetMapping(path = "stream", produces = "application/x-ndjson")             //! GET api/v1/student/stream
+            public void streamStudents(HttpServletResponse response) throws IOException {   //! void + write to the response ourselves -> Spring doesnt try to serialize a return value
+                response.setContentType("application/x-ndjson");
+                studentService.streamStudents(response.getOutputStream());
+            }
+        }
+
+    // 4) application.properties
+        spring.jpa.open-in-view=false                                                   //! default true keeps an EntityManager open for the whole request. Turn off so the only persistence context is the one in streamStudents()
+
+
+/*--------------------------------------- LVL 3 - Age Filter (?minAge=&maxAge=) + Age Histogram in SQL ---------------------------------------
+    * age is @Transient -> its NOT a column, its worked out in getAge() with Period.between(dob, LocalDate.now())
+        -> the db cant filter on it -> "students aged 18-25" = findAll() + filter in Java = whole table sent over the wire
+    * Trick: turn the AGE range into a DOB range (dob IS a column) -> put an index on dob -> the db only reads the matching rows (index range scan)
+        age >= minAge   <=>   dob <= today - minAge years
+        age <= maxAge   <=>   dob >  today - (maxAge + 1) years
+        ex: today = 2026-10-18, minAge=18, maxAge=25 ->  2000-10-18 < dob <= 2008-10-18
+    * Histogram (how many students of each age): GROUP BY dob in SQL -> the db sends back 1 row per birthday (max ~36500 for 100 years) instead of millions of Students
+        -> the app folds those rows into ages with the SAME Period.between() as getAge()
+        !not GROUP BY age(current_date, dob) -> age() is Postgres only and the tests / benchmarks (Tutorial 7) run on H2    */
+
+    // 1) Model.................................................................... MainPackage/StudentPackage/Student.java
+        @Entity
+        @Table(
+            uniqueConstraints = @UniqueConstraint(name = "student_email_unique", columnNames = "email"),   // Tutorial 4 LVL 2
+            indexes = @Index(name = "student_dob_idx", columnList = "dob")              //! ddl-auto makes: CREATE INDEX student_dob_idx ON student (dob)
+        )
+        public class Student {...}
+
+    // 2) Projections.............................................................. MainPackage/StudentPackage/DobCount.java + AgeBucket.java
+        public interface DobCount {                                                     //! interface projection: Spring Data fills in the getters from the query's column aliases (dob, students). No entity is created
+            LocalDate getDob();
+            long getStudents();
+        }
+
+        public record AgeBucket(int age, long students) {}                              // what the endpoint returns -> {"age":18,"students":5231}
+
+    // 3) Repository............................................................... MainPackage/StudentPackage/StudentRepository.java
+        @Repository
+        public interface StudentRepository extends JpaRepository<Student, Long> {
+            // findStudentByEmail, findStudentsAfter...
+
+            @Query("SELECT s FROM Student s WHERE (?1 IS NULL OR s.dob > ?1) AND s.dob <= ?2 AND s.id > ?3 ORDER BY s.id")   //! dob range (uses student_dob_idx) + the same keyset paging as LVL 1
+            List<Student> findStudentsBornBetweenAfter(LocalDate bornAfter, LocalDate bornOnOrBefore, Long afterId, Pageable pageable);
+            // !bornAfter = null -> no lower bound (no maxAge). NOT LocalDate.MIN as a "sentinel": year -999999999 is outside what a DATE column can hold
+
+            @Query("SELECT s.dob AS dob, count(s) AS students FROM Student s GROUP BY s.dob")   //! plain JPQL -> runs the same on Postgres and H2. Can read only the dob index (index-only scan)
+            List<DobCount> countStudentsByDob();
+        }
+
+    // 4) Service.................................................................. MainPackage/StudentPackage/StudentService.java
+        @Service
+        public class StudentService {
+            // Injecting Repository & Constructor...
+
+            @Transactional(readOnly = true)
+            public StudentPage getStudents(Long after, Integer limit, Integer minAge, Integer maxAge){
+                if (minAge == null && maxAge == null){
+                    return getStudents(after, limit);                                   // no filter -> plain keyset paging from LVL 1
+                }
+                LocalDate today = LocalDate.now();
+                LocalDate bornOnOrBefore = today.minusYears(minAge == null ? 0 : minAge);          // youngest allowed
+                LocalDate bornAfter = (maxAge == null) ? null                                       // oldest allowed (null = no lower bound)
+                                                       : today.minusYears(maxAge + 1L);
+                if (bornAfter != null && !bornAfter.isBefore(bornOnOrBefore)){          // minAge > maxAge -> empty range, dont even ask the db
+                    return new StudentPage(List.of(), null);
+                }
+
+                int pageSize = (limit == null) ? DEFAULT_PAGE_SIZE : Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+                List<Student> students = studentRepository.findStudentsBornBetweenAfter(
+                        bornAfter, bornOnOrBefore, (after == null) ? 0L : after, PageRequest.of(0, pageSize + 1)
+                );
+                if (students.size() <= pageSize){
+                    return new StudentPage(students, null);
+                }
+                List<Student> page = students.subList(0, pageSize);
+                return new StudentPage(page, page.get(pageSize - 1).getId());
+            }
+
+            @Transactional(readOnly = true)
+            public List<AgeBucket> getAgeHistogram(){
+                LocalDate today = LocalDate.now();
+                Map<Integer, Long> studentsByAge = new TreeMap<>();                     // TreeMap -> buckets come out sorted by age
+                for (DobCount row : studentRepository.countStudentsByDob()){
+                    int age = Period.between(row.getDob(), today).getYears();           //! same rule as Student.getAge() -> the histogram and ?minAge=&maxAge= always agree
+                    studentsByAge.merge(age, row.getStudents(), Long::sum);
+                }
+                return studentsByAge.entrySet().stream()
+                        .map(e -> new AgeBucket(e.getKey(), e.getValue()))
+                        .toList();
+            }
+        }
+
+    // 5) Controller............................................................... MainPackage/StudentPackage/StudentController.java
+        @RestController
+        @RequestMapping(path = "api/v1/student")
+        public class StudentController {
+            // Injecting Service Dependency & Constructor...
+
+            @GetMapping                                                                 //! GET api/v1/student?minAge=18&maxAge=25&after=1500&limit=100  (all optional)
+            public StudentPage getStudents(
+                    @RequestParam(required = false) Long after,
+                    @RequestParam(required = false) Integer limit,
+                    @RequestParam(required = false) Integer minAge,
+                    @RequestParam(required = false) Integer maxAge){
+                return studentService.getStudents(after, limit, minAge, maxAge);
+            }
+
+            @GetMapping(path = "ages")                                                  //! GET api/v1/student/ages -> [ {"age":18,"students":5231}, {"age":19,"students":6120}, ... ]
+            public List<AgeBucket> getAgeHistogram(){
+                return studentService.getAgeHistogram();
+            }
+        }
+        // !ages are worked out from LocalDate.now() (the app's date) in both the filter and the histogram -> the db's time zone doesnt matter
+
+
+/*--------------------------------------- LVL 4 - Only the Fields You Ask For (?fields=id,name) ---------------------------------------
+    * getStudents() always makes FULL Student entities:
+        - SELECT id, name, email, dob ... (every column, even if the client only shows names)
+        - each Student goes into the persistence context + Hibernate keeps a snapshot copy of it for dirty checking
+        - getAge() runs Period.between() for every Student while serializing
+    * ?fields=id,name -> SELECT s.id, s.name only -> rows come back as plain values (JPA Tuple), NOT entities -> no persistence context, no snapshots
+    * Fields are checked against a WHITELIST (id, name, email, dob, age) -> the field names are NEVER pasted into the query as the client typed them
+    * age isnt a column -> if asked for, we select dob and work age out from it
+    * Same keyset paging as LVL 1 (id is always selected for the cursor, only sent back if asked for)
+
+    GET api/v1/student?fields=id,name&limit=2
+    { "students": [ {"id":1,"name":"Tom"}, {"id":2,"name":"Alex"} ], "nextCursor": 2 }                                        */
+
+    // 1) Page Response (DTO)...................................................... MainPackage/StudentPackage/StudentFieldsPage.java
+        public record StudentFieldsPage(List<Map<String, Object>> students, Long nextCursor) {}   //! each Student is a Map field -> value (LinkedHashMap keeps the order the client asked for)
+
+    // 2) Custom Repository Fragment............................................... MainPackage/StudentPackage/StudentProjectionRepository.java
+        // Spring Data lets us add our OWN methods to StudentRepository: make an interface + a class named <Interface>Impl -> Spring plugs it in
+        public interface StudentProjectionRepository {
+            List<Map<String, Object>> findStudentFieldsAfter(Set<String> fields, Long afterId, int limit);
+        }
+
+        // MainPackage/StudentPackage/StudentProjectionRepositoryImpl.java
+        public class StudentProjectionRepositoryImpl implements StudentProjectionRepository {   //! name MUST end in Impl
+            private static final Map<String, String> COLUMNS = Map.of(                  //! WHITELIST: api field -> JPQL path
+                    "id", "s.id",
+                    "name", "s.name",
+                    "email", "s.email",
+                    "dob", "s.dob",
+                    "age", "s.dob"                                                      //! age -> read dob, work it out in Java
+            );
+
+            private final EntityManager entityManager;
+            public StudentProjectionRepositoryImpl(EntityManager entityManager){
+                this.entityManager = entityManager;
+            }
+
+            @Override
+            public List<Map<String, Object>> findStudentFieldsAfter(Set<String> fields, Long afterId, int limit){
+                Set<String> columns = new LinkedHashSet<>();
+                columns.add("s.id");                                                    // always need id for the cursor
+                fields.forEach(field -> columns.add(COLUMNS.get(field)));               // fields were already checked in the service
+                String select = columns.stream()
+                        .map(path -> path + " AS " + path.substring(2))                 //! alias "s.name AS name" -> tuple.get("name")
+                        .collect(Collectors.joining(", "));
+
+                List<Tuple> rows = entityManager.createQuery(
+                                "SELECT " + select + " FROM Student s WHERE s.id > :after ORDER BY s.id", Tuple.class)   //! Tuple = 1 row of plain values, not an entity
+                        .setParameter("after", afterId)
+                        .setMaxResults(limit)
+                        .getResultList();
+
+                LocalDate today = LocalDate.now();
+                List<Map<String, Object>> students = new ArrayList<>(rows.size());
+                for (Tuple row : rows){
+                    Map<String, Object> student = new LinkedHashMap<>();
+                    for (String field : fields){
+                        student.put(field, field.equals("age")
+                                ? Period.between(row.get("dob", LocalDate.class), today).getYears()
+                                : row.get(field));
+                    }
+                    student.putIfAbsent("id", row.get("id"));                           // keep id for the cursor (service removes it if not asked for)
+                    students.add(student);
+                }
+                return students;
+            }
+        }
+
+    // 3) Repository............................................................... MainPackage/StudentPackage/StudentRepository.java
+        @Repository
+        public interface StudentRepository extends JpaRepository<Student, Long>, StudentProjectionRepository {   //! + the fragment -> studentRepository.findStudentFieldsAfter(...) just works
+            // findStudentByEmail, findStudentsAfter...
+        }
+
+    // 4) Service.................................................................. MainPackage/StudentPackage/StudentService.java
+        @Service
+        public class StudentService {
+            public static final Set<String> STUDENT_FIELDS = Set.of("id", "name", "email", "dob", "age");
+
+            // Injecting Repository & Constructor...
+
+            @Transactional(readOnly = true)
+            public StudentFieldsPage getStudentFields(List<String> fields, Long after, Integer limit){
+                Set<String> requested = new LinkedHashSet<>(fields);
+                if (requested.isEmpty() || !STUDENT_FIELDS.containsAll(requested)){     //! unknown field -> 400 (never reaches the query)
+                    throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "fields must be some of "+STUDENT_FIELDS);
+                }
+                int pageSize = (limit == null) ? DEFAULT_PAGE_SIZE : Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+                List<Map<String, Object>> students = studentRepository.findStudentFieldsAfter(
+                        requested, (after == null) ? 0L : after, pageSize + 1            // +1 row to know if there is a next page (LVL 1)
+                );
+
+                Long nextCursor = null;
+                if (students.size() > pageSize){
+                    students = students.subList(0, pageSize);
+                    nextCursor = (Long) students.get(pageSize - 1).get("id");
+                }
+                if (!requested.contains("id")){
+                    students.forEach(student -> student.remove("id"));                  // client didnt ask for id
+                }
+                return new StudentFieldsPage(students, nextCursor);
+            }
+        }
+
+    // 5) Controller............................................................... MainPackage/StudentPackage/StudentController.java
+        @RestController
+        @RequestMapping(path = "api/v1/student")
+        public class StudentController {
+            // Injecting Service Dependency & Constructor...
+
+            @GetMapping(params = "fields")                                              //! params = "fields" -> this method only handles GETs that HAVE ?fields=, the rest still go to getStudents()
+            public StudentFieldsPage getStudentFields(
+                    @RequestParam List<String> fields,                                  // "id,name" -> ["id", "name"]
+                    @RequestParam(required = false) Long after,
+                    @RequestParam(required = false) Integer limit){
+                return studentService.getStudentFields(fields, after, limit);
+            }
+        }
+
+
+/*--------------------------------------- LVL 5 - Binary Responses (CBOR / Protobuf) with Content Negotiation ---------------------------------------
+    * JSON for a list of Students repeats "id","name","email","dob","age" in EVERY object + writes dob as the text "2000-01-05"
+        -> in profiles of the list endpoint, JSON encoding is the biggest CPU cost
+    * CONTENT NEGOTIATION: same URL, the client picks the format with the Accept header (and Content-Type for @RequestBody)
+        Accept: application/json            -> JSON (default, nothing changes for current clients)
+        Accept: application/cbor            -> CBOR = "binary JSON" (same structure, same Jackson code, smaller + faster numbers/strings)
+        Accept: application/x-protobuf      -> Protobuf = schema based -> field NAMES arent sent at all (just field numbers), dob as 1 int
+    * Spring picks an HttpMessageConverter for the Accept header. Jackson and Protobuf converters write straight into the response
+      OutputStream -> no byte[] / String of the whole response in between                                                                        */
+
+    // 0) pom.xml
+        <dependency>
+            <groupId>com.fasterxml.jackson.dataformat</groupId>
+            <artifactId>jackson-dataformat-cbor</artifactId>                            <!-- version managed by Spring Boot -->
+        </dependency>
+        <dependency>
+            <groupId>com.google.protobuf</groupId>
+            <artifactId>protobuf-java</artifactId>
+        </dependency>
+        <!-- + protobuf-maven-plugin (or protoc) to generate StudentProtos.java from student.proto -->
+
+    // 1) Schema................................................................... src/main/proto/student.proto
+        syntax = "proto3";
+        option java_package = "MainPackage.StudentPackage.proto";
+        option java_outer_classname = "StudentProtos";
+
+        message StudentMessage {
+            int64  id      = 1;                                                         // field NUMBERS go on the wire, not names
+            string name    = 2;
+            string email   = 3;
+            int64  dob     = 4;                                                         // LocalDate.toEpochDay() -> 1 small int instead of "2000-01-05"
+            int32  age     = 5;
+        }
+        message StudentPageMessage {
+            repeated StudentMessage students = 1;
+            optional int64 next_cursor       = 2;                                       // not set = last page
+        }
+
+    // 2) Message Converters....................................................... MainPackage/StudentPackage/StudentFormatConfig.java
+        @Configuration
+        public class StudentFormatConfig {
+            public static final String PROTOBUF_VALUE = "application/x-protobuf";       //! Spring 6.1 has NO constant for it (MediaType.APPLICATION_PROTOBUF_VALUE only from 6.2)
+
+            @Bean                                                                       //! Spring Boot adds every HttpMessageConverter @Bean to Spring MVC's list (next to the JSON one)
+            public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(){
+                return new MappingJackson2CborHttpMessageConverter(
+                        Jackson2ObjectMapperBuilder.cbor().build()                      //! same Jackson setup (JavaTimeModule etc) but CBOR output. application/cbor
+                );
+            }
+
+            @Bean
+            public ProtobufHttpMessageConverter protobufHttpMessageConverter(){         //! handles any protobuf Message. application/x-protobuf
+                return new ProtobufHttpMessageConverter();
+            }
+        }
+
+    // 3) Which Format Was Asked For............................................... MainPackage/StudentPackage/StudentFormat.java
+        public enum StudentFormat {                                                     //! ORDER MATTERS: same order as produces = {...} below -> JSON first = the default
+            JSON(MediaType.APPLICATION_JSON),
+            CBOR(MediaType.APPLICATION_CBOR),
+            PROTOBUF(MediaType.parseMediaType(StudentFormatConfig.PROTOBUF_VALUE));
+
+            final MediaType mediaType;
+            StudentFormat(MediaType mediaType){ this.mediaType = mediaType; }
+
+            public static StudentFormat negotiate(ContentNegotiationManager manager, NativeWebRequest request) throws HttpMediaTypeNotAcceptableException {
+                for (MediaType accepted : manager.resolveMediaTypes(request)){          //! Spring MVC's own Accept parsing, best first. No Accept header -> */*
+                    for (StudentFormat format : values()){
+                        if (accepted.isCompatibleWith(format.mediaType)) return format; //  */* -> JSON (first), application/cbor -> CBOR ...
+                    }
+                }
+                return JSON;
+            }
+        }
+
+    // 4) Mapping Student <-> Protobuf............................................. MainPackage/StudentPackage/StudentProtoMapper.java
+        public final class StudentProtoMapper {
+            private StudentProtoMapper(){}
+
+            public static StudentPageMessage toMessage(StudentPage page){
+                StudentPageMessage.Builder builder = StudentPageMessage.newBuilder();
+                page.students().forEach(student -> builder.addStudents(toMessage(student)));
+                if (page.nextCursor() != null){
+                    builder.setNextCursor(page.nextCursor());
+                }
+                return builder.build();
+            }
+
+            public static StudentMessage toMessage(Student student){
+                StudentMessage.Builder builder = StudentMessage.newBuilder().setId(student.getId());
+                if (student.getName() != null){                                         //! protobuf setters throw NullPointerException on null -> a Student with no name would 500 the whole page
+                    builder.setName(student.getName());                                 //   not set = "" on the other side (proto3 default), same as JSON leaving it out
+                }
+                if (student.getEmail() != null){
+                    builder.setEmail(student.getEmail());
+                }
+                if (student.getDob() != null){                                          // no dob -> no age either (getAge() needs the dob)
+                    builder.setDob(student.getDob().toEpochDay()).setAge(student.getAge());
+                }
+                return builder.build();
+            }
+
+            public static Student fromMessage(StudentMessage message){
+                return new Student(message.getName(), message.getEmail(), LocalDate.ofEpochDay(message.getDob()));
+            }
+        }
+
+    // 5) Controller............................................................... MainPackage/StudentPackage/StudentController.java
+        @RestController
+        @RequestMapping(path = "api/v1/student")
+        public class StudentController {
+            // Injecting Service Dependency & Constructor...
+            private final ContentNegotiationManager contentNegotiationManager;         //! Spring MVC's own one (bean mvcContentNegotiationManager) -> same Accept rules as Spring
+
+            //! ONE method for all 3 formats, JSON listed FIRST -> no Accept / Accept: */* (curl, browsers) = JSON like before
+            //  (1 method per format would make Spring choose between them for */* -> not necessarily JSON)
+            @GetMapping(produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE, StudentFormatConfig.PROTOBUF_VALUE})
+            public Object getStudents(
+                    @RequestParam(required = false) Long after,
+                    @RequestParam(required = false) Integer limit,
+                    @RequestParam(required = false) Integer minAge,
+                    @RequestParam(required = false) Integer maxAge,
+                    NativeWebRequest request) throws HttpMediaTypeNotAcceptableException {
+                StudentPage page = studentService.getStudents(after, limit, minAge, maxAge);   //! SAME params + same query in every format
+                return StudentFormat.negotiate(contentNegotiationManager, request) == StudentFormat.PROTOBUF
+                        ? StudentProtoMapper.toMessage(page)                            // protobuf converter needs a Message
+                        : page;                                                         // Jackson writes JSON or CBOR, whichever Spring picked
+            }
+            // !Once ETags are added (Tutorial 5 LVL 2) the ETag includes StudentFormat + `Vary: Accept`
+
+            @PostMapping(consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE})  //! Content-Type: application/cbor works for @RequestBody too
+            public void registerStudent(@RequestBody Student student){
+                studentService.registerStudent(student);
+            }
+
+            @PostMapping(consumes = StudentFormatConfig.PROTOBUF_VALUE)
+            public void registerStudentProtobuf(@RequestBody StudentMessage message){
+                studentService.registerStudent(StudentProtoMapper.fromMessage(message));
+            }
+        }
+
+    // 6) Benchmark (JMH, see Tutorial 7 for the benchmark module)................. src/jmh/java/MainPackage/StudentPackage/StudentFormatBenchmark.java
+        @State(Scope.Benchmark)
+        @BenchmarkMode(Mode.AverageTime)
+        @OutputTimeUnit(TimeUnit.MICROSECONDS)
+        public class StudentFormatBenchmark {
+            @Param({"50", "500"})                                                       //! page sizes
+            int size;
+
+            ObjectMapper json = Jackson2ObjectMapperBuilder.json().build();
+            ObjectMapper cbor = Jackson2ObjectMapperBuilder.cbor().build();
+            StudentPage page;
+            byte[] jsonBytes, cborBytes, protoBytes;
+
+            @Setup
+            public void setup() throws IOException {
+                page = page(size);
+                jsonBytes = json.writeValueAsBytes(page);
+                cborBytes = cbor.writeValueAsBytes(page);
+                protoBytes = StudentProtoMapper.toMessage(page).toByteArray();
+            }
+
+            static StudentPage page(int size){
+                List<Student> students = new ArrayList<>();
+                for (long i = 1; i <= size; i++){
+                    Student student = new Student("Student " + i, "student" + i + "@gmail.com", LocalDate.of(2000, 1, 1).plusDays(i));
+                    student.setId(i);
+                    students.add(student);
+                }
+                return new StudentPage(students, (long) size);
+            }
+
+            @Benchmark public void encodeJson() throws IOException { json.writeValue(OutputStream.nullOutputStream(), page); }
+            @Benchmark public void encodeCbor() throws IOException { cbor.writeValue(OutputStream.nullOutputStream(), page); }
+            @Benchmark public void encodeProtobuf() throws IOException { StudentProtoMapper.toMessage(page).writeTo(OutputStream.nullOutputStream()); }
+            @Benchmark public Object decodeJson() throws IOException { return json.readValue(jsonBytes, StudentPage.class); }   //! into StudentPage + Students, same work as @RequestBody
+            @Benchmark public Object decodeCbor() throws IOException { return cbor.readValue(cborBytes, StudentPage.class); }   //  (readTree would only build a JsonNode tree -> not a fair match for parseFrom)
+            @Benchmark public Object decodeProtobuf() throws IOException {
+                return StudentPageMessage.parseFrom(protoBytes).getStudentsList().stream().map(StudentProtoMapper::fromMessage).toList();   // + build the Students, like the 2 above
+            }
+
+            public static void main(String[] args) throws IOException {                //! bytes on the wire are not a timing -> run this once by hand, NOT inside the JMH run (keeps its output clean)
+                ObjectMapper json = Jackson2ObjectMapperBuilder.json().build();
+                ObjectMapper cbor = Jackson2ObjectMapperBuilder.cbor().build();
+                for (int size : new int[]{50, 500}){
+                    StudentPage page = page(size);
+                    System.out.printf("size=%d bytes: json=%d cbor=%d protobuf=%d%n", size,
+                            json.writeValueAsBytes(page).length, cbor.writeValueAsBytes(page).length, StudentProtoMapper.toMessage(page).toByteArray().length);
+                }
+            }
+        }
+        // !Jackson2ObjectMapperBuilder turns FAIL_ON_UNKNOWN_PROPERTIES off -> the read-only "age" in the bytes is skipped when decoding into Student
+        // !Write the results (bytes per format + us/op per format and page size) down next to the commit you measured, dont trust numbers from a different machine
+
+
+/*--------------------------------------- LVL 6 - Search by Name/Email: Prefix + Typo Tolerant (GET api/v1/student/search?q=) ---------------------------------------
+    * The only query we have is exact email (@Query ... WHERE s.email = ?1). The "easy" search is `WHERE name LIKE '%tom%'`
+        -> leading % = no index can be used = full table scan on every keystroke
+    * In-process INDEX, kept in memory next to the app:
+        1) TERMS    -> sorted maps (TreeMap) word -> ids, 1 for the words of the name + 1 for the words of the email (so we know where a match came from)
+                       prefix search "tom" = all keys from "tom" up to "tom￿" = a range lookup, no scan
+        2) TRIGRAMS -> every 3 letter piece of every word -> ids ("tommy" -> " to", "tom", "omm", "mmy", "my ")
+                       typo "tomy" still shares most trigrams with "tommy" -> found. Score = how many trigrams match (Jaccard similarity)
+    * RANKING: exact word (3) > prefix of a name word (2) > prefix of an email word (1.5) > fuzzy match (0.3..1) -> then by score, then id
+    * Kept in sync INCREMENTALLY: registerStudent / updateStudent / deleteStudent update the index after commit
+      Built in BULK at startup from the streaming query in LVL 2 (constant memory on the db side)
+    * !Lives in 1 JVM -> each instance has its own copy (fine, they all rebuild from the db). Memory ~ 1.5-2 KB per Student:
+        ~20 postings per Student (each trigram + term) x ~50 bytes (HashSet node + boxed Long) + Entry, its word sets and Strings
+        -> 1M Students ~ 2 GB of heap. Primitive long sets (ex: fastutil LongOpenHashSet) would cut the postings a lot
+      If that gets too big -> same idea inside Postgres: CREATE EXTENSION pg_trgm + GIN index on name/email and `similarity()` / `%` queries       */
+
+    // 1) Search Index............................................................. MainPackage/StudentPackage/StudentSearchIndex.java
+        @Component
+        public class StudentSearchIndex {
+            public static final int MAX_CANDIDATES = 5000;                              //! stop collecting after this many -> a 1 letter query cant rank the whole table
+
+            record Entry(long id, String name, String email, Set<String> nameWords, Set<String> emailWords, Set<String> words) {}   // words = both (for fuzzy)
+            public record Hit(long id, String name, String email, double score) {}
+
+            private final Map<Long, Entry> entries = new HashMap<>();
+            private final NavigableMap<String, Set<Long>> nameTerms = new TreeMap<>();  //! sorted -> prefix = subMap range
+            private final NavigableMap<String, Set<Long>> emailTerms = new TreeMap<>(); //  separate map -> a prefix hit knows if it was the name or the email
+            private final Map<String, Set<Long>> trigrams = new HashMap<>();
+            private final ReadWriteLock lock = new ReentrantReadWriteLock();           //! many searches at once (read lock), 1 update at a time (write lock)
+
+            public void put(Student student){
+                lock.writeLock().lock();
+                try {
+                    removeLocked(student.getId());                                      // update = remove the old words + add the new ones
+                    Set<String> nameWords = words(student.getName());
+                    Set<String> emailWords = words(student.getEmail());
+                    Set<String> words = new LinkedHashSet<>(nameWords);
+                    words.addAll(emailWords);
+                    entries.put(student.getId(), new Entry(student.getId(), student.getName(), student.getEmail(), nameWords, emailWords, words));
+                    for (String word : nameWords) nameTerms.computeIfAbsent(word, k -> new HashSet<>()).add(student.getId());
+                    for (String word : emailWords) emailTerms.computeIfAbsent(word, k -> new HashSet<>()).add(student.getId());
+                    for (String word : words){
+                        for (String gram : trigrams(word)){
+                            trigrams.computeIfAbsent(gram, k -> new HashSet<>()).add(student.getId());
+                        }
+                    }
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            }
+
+            public void remove(long id){
+                lock.writeLock().lock();
+                try {
+                    removeLocked(id);
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            }
+
+            private void removeLocked(long id){
+                Entry old = entries.remove(id);
+                if (old == null) return;
+                for (String word : old.nameWords()) removeId(nameTerms, word, id);
+                for (String word : old.emailWords()) removeId(emailTerms, word, id);
+                for (String word : old.words()){
+                    for (String gram : trigrams(word)) removeId(trigrams, gram, id);
+                }
+            }
+
+            private static void removeId(Map<String, Set<Long>> index, String key, long id){
+                Set<Long> ids = index.get(key);
+                if (ids != null && ids.remove(id) && ids.isEmpty()) index.remove(key);  // drop empty keys so memory goes down too
+            }
+
+            public List<Hit> search(String query, int offset, int limit){
+                Set<String> queryWords = words(query);
+                if (queryWords.isEmpty()) return List.of();
+                lock.readLock().lock();
+                try {
+                    Map<Long, Double> scores = new HashMap<>();
+                    for (String q : queryWords){
+                        addPrefixMatches(nameTerms, q, 2, scores);                     // 1) PREFIX (range lookup): name word prefix = 2
+                        addPrefixMatches(emailTerms, q, 1.5, scores);                  //    email word prefix = 1.5 (exact word = 3 in both)
+                        Set<String> queryGrams = trigrams(q);                          // 2) FUZZY (trigrams)
+                        Map<Long, Integer> shared = new HashMap<>();
+                        for (String gram : queryGrams){
+                            for (Long id : trigrams.getOrDefault(gram, Set.of())){
+                                if (shared.size() >= MAX_CANDIDATES && !shared.containsKey(id)) continue;
+                                shared.merge(id, 1, Integer::sum);
+                            }
+                        }
+                        shared.forEach((id, count) -> {
+                            double similarity = bestSimilarity(queryGrams, entries.get(id).words());
+                            if (similarity >= 0.3){                                     //! below ~0.3 its not really "a typo of" the word anymore
+                                scores.merge(id, similarity, Math::max);                //    fuzzy score is 0.3..1 -> always below a prefix match (1.5..3)
+                            }
+                        });
+                    }
+                    return scores.entrySet().stream()
+                            .sorted(Map.Entry.<Long, Double>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()))   // 3) RANK: score, then id (stable pages)
+                            .skip(offset)
+                            .limit(limit)
+                            .map(e -> {
+                                Entry entry = entries.get(e.getKey());
+                                return new Hit(entry.id(), entry.name(), entry.email(), e.getValue());
+                            })
+                            .toList();
+                } finally {
+                    lock.readLock().unlock();
+                }
+            }
+
+            private static void addPrefixMatches(NavigableMap<String, Set<Long>> terms, String q, double prefixScore, Map<Long, Double> scores){
+                for (Map.Entry<String, Set<Long>> term : terms.subMap(q, true, q + Character.MAX_VALUE, false).entrySet()){
+                    double score = term.getKey().equals(q) ? 3 : prefixScore;           //    exact word beats prefix
+                    for (Long id : term.getValue()){
+                        if (scores.size() >= MAX_CANDIDATES) return;                    //! cap reached -> leave BOTH loops (a plain break only leaves the id loop)
+                        scores.merge(id, score, Math::max);                             //    Math::max -> name prefix wins over email prefix for the same Student
+                    }
+                }
+            }
+
+            private static double bestSimilarity(Set<String> queryGrams, Set<String> words){   //! Jaccard = shared trigrams / all trigrams of both
+                double best = 0;
+                for (String word : words){
+                    Set<String> grams = trigrams(word);
+                    long common = grams.stream().filter(queryGrams::contains).count();
+                    best = Math.max(best, (double) common / (grams.size() + queryGrams.size() - common));
+                }
+                return best;
+            }
+
+            static Set<String> words(String text){                                     // "Tommy@gmail.com" -> [tommy, gmail, com]
+                Set<String> words = new LinkedHashSet<>();
+                if (text == null){
+                    return words;                                               //! null name/email (or a blank ?q) -> nothing to index or match, not a NullPointerException
+                }
+                for (String word : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")){
+                    if (!word.isEmpty()) words.add(word);
+                }
+                return words;
+            }
+
+            static Set<String> trigrams(String word){                                  // "tom" -> [" to", "tom", "om "] (padded so short words still have trigrams)
+                String padded = " " + word + " ";
+                Set<String> grams = new HashSet<>();
+                for (int i = 0; i + 3 <= padded.length(); i++) grams.add(padded.substring(i, i + 3));
+                return grams;
+            }
+        }
+
+    // 2) Bulk Build at Startup + Incremental Sync................................. MainPackage/StudentPackage/StudentSearchIndexer.java
+        @Component
+        public class StudentSearchIndexer {
+            private static final Logger log = LoggerFactory.getLogger(StudentSearchIndexer.class);
+            private final StudentSearchIndex index;
+            private final StudentRepository studentRepository;
+            private final TransactionTemplate readOnlyTx;
+            private final Object rebuildLock = new Object();
+            private List<Runnable> changedDuringRebuild;                                //! != null while the stream runs. Guarded by rebuildLock
+
+            @Autowired
+            public StudentSearchIndexer(StudentSearchIndex index, StudentRepository studentRepository, PlatformTransactionManager transactionManager){
+                this.index = index;
+                this.studentRepository = studentRepository;
+                this.readOnlyTx = new TransactionTemplate(transactionManager);
+                this.readOnlyTx.setReadOnly(true);
+            }
+
+            @EventListener(ApplicationReadyEvent.class)                                 //! runs once the app is up (after the seeders)
+            public void rebuild(){
+                long start = System.nanoTime();
+                synchronized (rebuildLock){
+                    changedDuringRebuild = new ArrayList<>();                          // 1) start remembering live changes
+                }
+                try {
+                    readOnlyTx.executeWithoutResult(status -> {
+                        try (Stream<Student> students = studentRepository.streamAllStudents()){    //! LVL 2 stream -> fetch size 500, never the whole table at once
+                            students.forEach(index::put);                               // 2) bulk load from the snapshot
+                        }
+                    });
+                } finally {
+                    synchronized (rebuildLock){
+                        changedDuringRebuild.forEach(Runnable::run);                    // 3) re-apply every live change on top -> they win over the snapshot
+                        changedDuringRebuild = null;
+                    }
+                }
+                log.info("Search index built in {} ms", (System.nanoTime() - start) / 1_000_000);
+            }
+            // !The stream reads a SNAPSHOT. A delete/update that commits while it runs is applied live first, then the stream writes the OLD row back
+            //  (ghost / stale entry). That is why live changes are remembered during the rebuild and applied again after it (step 3)
+
+            public void putAfterCommit(Student student){ afterCommit(() -> apply(() -> index.put(student))); }
+            public void removeAfterCommit(long id){ afterCommit(() -> apply(() -> index.remove(id))); }
+
+            private void apply(Runnable change){
+                synchronized (rebuildLock){                                             //! same lock as step 1/3 -> a change is either remembered or comes after the replay, never lost
+                    if (changedDuringRebuild != null) changedDuringRebuild.add(change);
+                    change.run();
+                }
+            }
+
+            private static void afterCommit(Runnable action){                          // same pattern as StudentCache.evictAfterCommit (Tutorial 5)
+                if (TransactionSynchronizationManager.isSynchronizationActive()){
+                    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                        @Override public void afterCommit(){ action.run(); }
+                    });
+                } else {
+                    action.run();
+                }
+            }
+        }
+
+    // 3) Service.................................................................. MainPackage/StudentPackage/StudentService.java
+        @Service
+        public class StudentService {
+            public static final int MAX_SEARCH_PAGE = 50;
+            public static final int MAX_SEARCH_OFFSET = 1000;
+
+            // Injecting Repository + StudentSearchIndex + StudentSearchIndexer & Constructor...
+
+            public List<StudentSearchIndex.Hit> searchStudents(String q, Integer offset, Integer limit){
+                if (q == null || q.isBlank()){
+                    throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "q is required!");
+                }
+                int from = (offset == null) ? 0 : Math.max(0, Math.min(offset, MAX_SEARCH_OFFSET));   //! ranked results -> offset paging, but capped (nobody reads result 5000)
+                int size = (limit == null) ? 20 : Math.max(1, Math.min(limit, MAX_SEARCH_PAGE));
+                return studentSearchIndex.search(q, from, size);                        //! no db at all
+            }
+
+            public void registerStudent(Student student){
+                // saveAndFlush + catch conflict...
+                studentSearchIndexer.putAfterCommit(student);
+            }
+            // deleteStudent / deleteStudents  -> studentSearchIndexer.removeAfterCommit(id)
+            // updateStudent (1 UPDATE, no entity) -> after it, studentRepository.findById(id).ifPresent(studentSearchIndexer::putAfterCommit)
+        }
+
+    // 4) Controller............................................................... MainPackage/StudentPackage/StudentController.java
+        @RestController
+        @RequestMapping(path = "api/v1/student")
+        public class StudentController {
+            // Injecting Service Dependency & Constructor...
+
+            @GetMapping(path = "search")                                                //! GET api/v1/student/search?q=tomy&offset=0&limit=20
+            public List<StudentSearchIndex.Hit> searchStudents(
+                    @RequestParam String q,
+                    @RequestParam(required = false) Integer offset,
+                    @RequestParam(required = false) Integer limit){
+                return studentService.searchStudents(q, offset, limit);
+            }
+        }
+        // GET api/v1/student/search?q=tomy -> [ {"id":1,"name":"Tom","email":"Tommy@gmail.com","score":0.5}, ... ]   ("tomy" ~ "tommy")
@@ -0,0 +1,706 @@
+/* Writing to the `student` table in bulk
+    * registerStudent() from Summary REST.java is 1 HTTP call per Student and each call costs 3 db round trips:
+        1) findStudentByEmail()     -> SELECT ... WHERE email = ?
+        2) nextval('student_sequence')  -> because of @SequenceGenerator(allocationSize = 1)
+        3) INSERT INTO student ...
+    * Importing 100,000 students = 300,000 round trips -> hours. Each LVL below cuts round trips
+
+--------------------------------------- LVL 1 - Batch Registration (POST api/v1/student/batch) ---------------------------------------
+    * 1 request with thousands of Students instead of thousands of requests
+    * Email check  -> 1 `WHERE email IN (...)` query per chunk instead of 1 query per Student
+    * Ids          -> sequence with allocationSize = 50 + pooled-lo optimizer -> 1 nextval() gives Hibernate 50 ids to hand out in memory
+    * INSERTs      -> JDBC batching (hibernate.jdbc.batch_size) -> 500 INSERTs go to the db in 1 round trip
+        !Only works with SEQUENCE ids. GenerationType.IDENTITY turns batching OFF (Hibernate has to INSERT right away to learn the id)                */
+
+    // 1) Model.................................................................... MainPackage/StudentPackage/Student.java
+        @Entity
+        @Table
+        public class Student {
+            @Id
+            @SequenceGenerator(
+                    name = "student_sequence",
+                    sequenceName = "student_sequence",
+                    allocationSize = 50                                                 //! was 1. Sequence now goes up by 50 each nextval() -> Hibernate hands out the 50 ids in between from memory
+            )
+            @GeneratedValue(
+                    strategy = GenerationType.SEQUENCE,
+                    generator = "student_sequence"
+            )
+            private Long id;
+            // rest of Student...
+        }
+        // !If the table already exists (not create-drop), the db sequence has to match:  ALTER SEQUENCE student_sequence INCREMENT BY 50;
+
+    // 2) application.properties
+        spring.jpa.properties.hibernate.id.optimizer.pooled.preferred=pooled-lo        //! pooled-lo: nextval() = FIRST id of the block (safe if other apps also insert using plain nextval())
+        spring.jpa.properties.hibernate.jdbc.batch_size=500                             //! group 500 INSERTs into 1 JDBC batch
+        spring.jpa.properties.hibernate.order_inserts=true                              //! sort INSERTs by entity so batches dont get cut short by mixed statements
+        spring.jpa.properties.hibernate.order_updates=true
+        spring.datasource.url=jdbc:postgresql://localhost:5432/student?reWriteBatchedInserts=true   //! Postgres driver rewrites a batch into multi-row INSERT ... VALUES (..),(..),(..) -> even faster
+
+    // 3) Batch Result (DTO)....................................................... MainPackage/StudentPackage/StudentBatchResult.java
+        public record StudentBatchResult(int registered, List<String> rejectedEmails) {}   //! Tell the client which ones were skipped (email already exists / repeated in the request)
+
+    // 4) Repository............................................................... MainPackage/StudentPackage/StudentRepository.java
+        @Repository
+        public interface StudentRepository extends JpaRepository<Student, Long> {
+            // findStudentByEmail...
+
+            @Query("SELECT s.email FROM Student s WHERE s.email IN ?1")                 //! 1 query for a whole chunk of emails. Only selects the email column, not full Students
+            Set<String> findExistingEmails(Collection<String> emails);
+        }
+
+    // 5) Service.................................................................. MainPackage/StudentPackage/StudentService.java
+        @Service
+        public class StudentService {
+            public static final int MAX_BATCH_SIZE = 10_000;                            //! max Students per request
+            public static final int CHUNK_SIZE = 500;                                   //! same as hibernate.jdbc.batch_size. Also keeps the IN (...) list small (Postgres max is 32767 bind params)
+
+            private final StudentRepository studentRepository;
+            private final EntityManager entityManager;
+            // + StudentSearchIndexer (Tutorial 3 LVL 6), StudentVersions (Tutorial 5 LVL 2), StudentChangeFeed (Tutorial 6 LVL 4) once those exist
+            // Constructor...
+
+            @Transactional                                                              //! 1 transaction + 1 commit for the whole batch
+            public StudentBatchResult registerStudents(List<Student> students){
+                if (students.size() > MAX_BATCH_SIZE){
+                    throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Batch has "+students.size()+" students, max is "+MAX_BATCH_SIZE+"!");    //! client error -> 400, not 500
+                }
+                List<String> rejectedEmails = new ArrayList<>();
+                Set<String> seen = new HashSet<>();                                     //! emails already used earlier in THIS request (across all chunks)
+                int registered = 0;
+
+                for (int from = 0; from < students.size(); from += CHUNK_SIZE){
+                    List<Student> chunk = students.subList(from, Math.min(from + CHUNK_SIZE, students.size()));
+
+                    Set<String> existing = studentRepository.findExistingEmails(        // 1) 1 SELECT for the whole chunk
+                            chunk.stream().map(Student::getEmail).toList()
+                    );
+                    List<Student> toSave = new ArrayList<>(chunk.size());
+                    for (Student student : chunk){
+                        if (existing.contains(student.getEmail()) || !seen.add(student.getEmail())){  // 2) already in db OR repeated earlier in this request -> skip it
+                            rejectedEmails.add(student.getEmail());
+                        } else {
+                            toSave.add(student);
+                        }
+                    }
+
+                    studentRepository.saveAll(toSave);                                  // 3) ids come from the pooled sequence (no round trip most of the time)
+                    entityManager.flush();                                              // 4) send the INSERTs now as 1 JDBC batch
+                    entityManager.clear();                                              // 5) drop the saved Students from the persistence context -> memory doesnt grow with the batch size
+                    for (Student student : toSave){                                     // 6) same after-commit hooks as registerStudent -> batch rows show up in search + the SSE feed too
+                        studentSearchIndexer.putAfterCommit(student);                   // Tutorial 3 LVL 6 (detached is fine: the index only reads id/name/email)
+                        studentChangeFeed.publishAfterCommit(StudentChange.Type.CREATED, student.getId());   // Tutorial 6 LVL 4
+                    }
+                    registered += toSave.size();
+                }
+                if (registered > 0){
+                    studentVersions.bumpAfterCommit();                                  // Tutorial 5 LVL 2 -> 1 bump per batch is enough
+                }
+                return new StudentBatchResult(registered, rejectedEmails);
+            }
+        }
+
+    // 6) Controller............................................................... MainPackage/StudentPackage/StudentController.java
+        @RestController
+        @RequestMapping(path = "api/v1/student")
+        public class StudentController {
+            // Injecting Service Dependency & Constructor...
+
+            @PostMapping(path = "batch")                                                //! POST api/v1/student/batch   body: [ {...}, {...}, ... ]
+            public StudentBatchResult registerStudents(@RequestBody List<Student> students){    //! @RequestBody works with a List too -> Jackson makes a List<Student>
+                return studentService.registerStudents(students);
+            }
+        }
+
+
+/*--------------------------------------- LVL 2 - Race Free Email Check in 1 Round Trip (unique index + catch the conflict) ---------------------------------------
+    * Old registerStudent():  findStudentByEmail().isPresent() -> save()
+        - 2 round trips
+        - RACE: request A and request B both run findStudentByEmail() before either one saves -> both see "no email" -> both INSERT -> 2 Tommy@gmail.com
+    * New registerStudent():  just INSERT -> let the db say no
+        - UNIQUE index on email -> the db itself makes sure 2 rows can never have the same email (even with 100 requests at the same time)
+        - Duplicate -> db throws a unique violation -> Spring turns it into DataIntegrityViolationException -> we send back 409 CONFLICT
+        - 1 round trip (id comes from the pooled sequence in LVL 1, so no nextval() most of the time)
+    * Why no in-memory Bloom filter in front?
+        - A Bloom filter can only say "DEFINITELY NOT there" or "MAYBE there". "Maybe" can be wrong -> cant reject a Student on a maybe, we'd have to ask the db anyway
+        - It also cant forget emails -> after deleteStudent() that email would look taken forever
+        - With the unique index the INSERT already IS the check, so there is no separate lookup left for a filter to skip                 */
+
+    // 1) Model.................................................................... MainPackage/StudentPackage/Student.java
+        @Entity
+        @Table(
+            uniqueConstraints = @UniqueConstraint(                                      //! ddl-auto makes: ALTER TABLE student ADD CONSTRAINT student_email_unique UNIQUE (email)  (+ the index behind it)
+                name = "student_email_unique",                                          //! name it so we can tell WHICH constraint failed
+                columnNames = "email"
+            )
+        )
+        public class Student {
+            // @Id + @SequenceGenerator...
+            @Column(nullable = false)
+            private String email;
+            // rest of Student...
+        }
+        // !Existing db (not create-drop):  CREATE UNIQUE INDEX CONCURRENTLY student_email_unique ON student (email);   (clean up any duplicate emails first or it fails)
+
+    // 2) Service.................................................................. MainPackage/StudentPackage/StudentService.java
+        @Service
+        public class StudentService {
+            // Injecting Repository Dependency & Constructor...
+
+            // POST Endpoint METHOD: no findStudentByEmail() anymore
+            public void registerStudent(Student student){                              //! NOT @Transactional -> saveAndFlush() runs in its own transaction, so the exception reaches us here
+                try {
+                    studentRepository.saveAndFlush(student);                            //! saveAndFlush (not save) -> INSERT runs NOW, so a duplicate fails inside this try
+                } catch (DataIntegrityViolationException e){
+                    if (isEmailConflict(e)){
+                        throw new ResponseStatusException(HttpStatus.CONFLICT, "Email exists!");   //! ResponseStatusException -> Spring answers with that status (409) instead of 500
+                    }
+                    throw e;                                                            // some other constraint (ex: null email) -> let it go through as is
+                }
+            }
+
+            static boolean isEmailConflict(DataIntegrityViolationException e){        // package-private static -> StudentWriteBehind (LVL 6) checks conflicts the same way
+                return e.getCause() instanceof ConstraintViolationException cve        //! Hibernate's ConstraintViolationException has the name of the constraint that failed
+                        && cve.getConstraintName() != null
+                        && cve.getConstraintName().toLowerCase(Locale.ROOT).contains("student_email_unique");
+            }
+            // !contains, not equals -> each db reports the name its own way:
+            //   Postgres: student_email_unique     H2: PUBLIC.STUDENT_EMAIL_UNIQUE_INDEX_B   (schema + upper case + index suffix)
+        }
+
+    // Response on a duplicate:
+        POST api/v1/student  { "name": "Tom", "email": "Tommy@gmail.com", "dob": "2000-01-05" }
+        -> 409 Conflict  { "status": 409, "error": "Conflict", "message": "Email exists!", ... }      (message shows with server.error.include-message=always)
+
+
+/*--------------------------------------- LVL 3 - 1 Statement Delete + Bulk Delete (DELETE api/v1/student?ids=1,2,3) ---------------------------------------
+    * Old deleteStudent() = 3 statements for 1 delete:
+        1) existsById()     -> SELECT count(*) ... WHERE id = ?
+        2) deleteById()     -> Spring Data does findById() first -> SELECT ... WHERE id = ?
+        3)                  -> then em.remove() -> DELETE FROM student WHERE id = ?
+    * New: just send `DELETE FROM student WHERE id = ?` -> the db tells us how many rows it deleted
+        - 1 row deleted -> done
+        - 0 rows deleted -> that id didnt exist -> same "does not exist" error as before
+    * Bulk: `DELETE FROM student WHERE id IN (...)` with up to 1000 ids per statement -> purging 50,000 students = 50 statements instead of 150,000
+    * @Modifying JPQL delete goes straight to the db (skips the persistence context) -> no entity is ever loaded                      */
+
+    // 1) Repository............................................................... MainPackage/StudentPackage/StudentRepository.java
+        @Repository
+        public interface StudentRepository extends JpaRepository<Student, Long> {
+            // findStudentByEmail, findExistingEmails...
+
+            @Modifying                                                                  //! @Modifying -> this @Query changes data (DELETE/UPDATE), returns the number of rows it changed
+            @Query("DELETE FROM Student s WHERE s.id = ?1")
+            int deleteStudentById(Long id);
+
+            @Modifying
+            @Query("DELETE FROM Student s WHERE s.id IN ?1")
+            int deleteStudentsByIds(Collection<Long> ids);
+        }
+
+    // 2) Service.................................................................. MainPackage/StudentPackage/StudentService.java
+        @Service
+        public class StudentService {
+            public static final int MAX_DELETE_IDS = 10_000;
+            public static final int DELETE_CHUNK_SIZE = 1000;                           //! ids per DELETE ... IN (...) statement
+
+            // Injecting Repository + StudentCache & Constructor...
+
+            // DELETE Endpoint METHOD
+            @Transactional                                                              //! @Modifying queries need a transaction
+            public void deleteStudent(Long studentId){
+                if (studentRepository.deleteStudentById(studentId) == 0){               //! 1 statement. 0 rows deleted = id didnt exist
+                    throw new IllegalStateException("Student Id "+studentId+" does not exist!");
+                }
+                studentCache.evictAfterCommit(studentId);                               // Tutorial 5 LVL 1
+            }
+
+            // Bulk DELETE Endpoint METHOD
+            @Transactional
+            public int deleteStudents(List<Long> studentIds){
+                if (studentIds.size() > MAX_DELETE_IDS){
+                    throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Can delete at most "+MAX_DELETE_IDS+" students per request!");    //! client error -> 400, not 500
+                }
+                int deleted = 0;
+                for (int from = 0; from < studentIds.size(); from += DELETE_CHUNK_SIZE){
+                    List<Long> chunk = studentIds.subList(from, Math.min(from + DELETE_CHUNK_SIZE, studentIds.size()));
+                    deleted += studentRepository.deleteStudentsByIds(chunk);            //! 1 statement per 1000 ids
+                }
+                studentIds.forEach(studentCache::evictAfterCommit);
+                return deleted;                                                         //! ids that didnt exist are just skipped (not an error for a cleanup job)
+            }
+        }
+
+    // 3) Controller............................................................... MainPackage/StudentPackage/StudentController.java
+        @RestController
+        @RequestMapping(path = "api/v1/student")
+        public class StudentController {
+            // Injecting Service Dependency & Constructor...
+
+            @DeleteMapping(path = "{studentId}")                                        // same as before, now 1 statement
+            public void deleteStudent(@PathVariable("studentId") Long studentId){
+                studentService.deleteStudent(studentId);
+            }
+
+            @DeleteMapping                                                              //! DELETE api/v1/student?ids=1,2,3
+            public int deleteStudents(@RequestParam List<Long> ids){                    //! Spring splits "1,2,3" into a List<Long> for us. Returns how many were actually deleted
+                return studentService.deleteStudents(ids);
+            }
+        }
+        // !Tomcat caps the URL + headers at 8KB by default (~1000 ids). For bigger purges raise it:  server.max-http-request-header-size=128KB
+
+
+/*--------------------------------------- LVL 4 - Partial Update with 1 UPDATE + Optimistic Locking (PUT/PATCH api/v1/student/{studentId}) ---------------------------------------
+    * Old @Transactional updateStudent() (Tutorial 1 LVL 5.3) = load + dirty check:
+        1) findById()       -> SELECT the whole Student (row stays locked by our UPDATE until the transaction ends)
+        2) setName()...     -> Hibernate compares with its snapshot at commit -> UPDATE every column
+        - LOST UPDATE: A and B both load version 1 -> A sets name, B sets email -> B's UPDATE writes back A's OLD name -> A's change is gone
+    * New: 1 targeted UPDATE, no entity loaded
+        UPDATE student SET name = coalesce(?, name), email = coalesce(?, email), version = version + 1
+        WHERE id = ? AND version = ?
+        - Only the fields the client sent change (null = "leave it alone")
+        - @Version column = OPTIMISTIC LOCKING -> client sends the version it read -> if someone changed the Student in the meantime the version wont match
+          -> 0 rows updated -> 409 CONFLICT -> client re-reads and tries again. No lock is held while the user is thinking
+        - 1 short statement -> the row lock is held for microseconds, not for a whole transaction                                       */
+
+    // 1) Model.................................................................... MainPackage/StudentPackage/Student.java
+        @Entity
+        @Table(...)
+        public class Student {
+            // @Id + @SequenceGenerator...
+            @Version                                                                    //! jakarta.persistence.Version -> Hibernate also checks + bumps it on normal save()/dirty checked updates
+            private Long version;                                                       //! new column `version`, starts at 0 on INSERT. Sent to clients with the Student
+            // rest of Student...
+        }
+
+    // 2) Update Request (DTO)..................................................... MainPackage/StudentPackage/StudentUpdate.java
+        public record StudentUpdate(String name, String email, Long version) {}        //! all optional except version. { "email": "tom@new.com", "version": 3 }
+
+    // 3) Repository............................................................... MainPackage/StudentPackage/StudentRepository.java
+        @Repository
+        public interface StudentRepository extends JpaRepository<Student, Long> {
+            // findStudentByEmail, deleteStudentById...
+
+            @Modifying
+            @Query("UPDATE Student s SET s.name = COALESCE(:name, s.name), s.email = COALESCE(:email, s.email), " +
+                   "s.version = s.version + 1 " +                                      //! bulk JPQL UPDATE skips Hibernate's @Version handling -> bump it ourselves
+                   "WHERE s.id = :id AND s.version = :version")                         //! only matches if nobody changed the row since the client read it
+            int updateStudent(@Param("id") Long id, @Param("version") Long version,    //! @Param -> named parameters (:name) instead of ?1, ?2 (easier to read with 4 params)
+                              @Param("name") String name, @Param("email") String email);
+        }
+
+    // 4) Service.................................................................. MainPackage/StudentPackage/StudentService.java
+        @Service
+        public class StudentService {
+            // Injecting Repository + StudentCache & Constructor...
+
+            // PUT/PATCH Endpoint METHOD
+            @Transactional
+            public long updateStudent(Long studentId, StudentUpdate update){
+                if (update.version() == null){
+                    throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "version is required!");
+                }
+                int updated;
+                try {
+                    updated = studentRepository.updateStudent(studentId, update.version(), update.name(), update.email());
+                } catch (DataIntegrityViolationException e){                           //! new email already taken -> unique index from LVL 2
+                    if (isEmailConflict(e)){
+                        throw new ResponseStatusException(HttpStatus.CONFLICT, "Email exists!");
+                    }
+                    throw e;
+                }
+                if (updated == 0){                                                      //! 0 rows -> either the id doesnt exist or the version is old. Only now do we spend a 2nd query to tell which
+                    if (!studentRepository.existsById(studentId)){
+                        throw new IllegalStateException("Student Id "+studentId+" does not exist!");
+                    }
+                    throw new ResponseStatusException(HttpStatus.CONFLICT, "Student "+studentId+" was changed by someone else, reload it!");
+                }
+                studentCache.evictAfterCommit(studentId);                               // Tutorial 5 LVL 1
+                return update.version() + 1;                                            //! new version -> client uses it for its next update
+            }
+        }
+
+    // 5) Controller............................................................... MainPackage/StudentPackage/StudentController.java
+        @RestController
+        @RequestMapping(path = "api/v1/student")
+        public class StudentController {
+            // Injecting Service Dependency & Constructor...
+
+            @RequestMapping(path = "{studentId}", method = {RequestMethod.PUT, RequestMethod.PATCH})  //! PUT and PATCH do the same thing here (only sent fields change). 1 @RequestMapping with 2 methods (cant stack @PutMapping + @PatchMapping)
+            public long updateStudent(@PathVariable("studentId") Long studentId, @RequestBody StudentUpdate update){
+                return studentService.updateStudent(studentId, update);
+            }
+        }
+        // !Postgres writes a whole new row version on ANY update, so coalesce(?, name) costs the same as leaving name out of the SET. What we save is the SELECT + the long lock
+
+
+/*--------------------------------------- LVL 5 - Seeding Millions of Fake Students (replaces Tom + Alex in StudentConfig) ---------------------------------------
+    * StudentConfig's CommandLineRunner (Tutorial 2 step 4) saves exactly 2 Students -> cant test anything from LVL 1-4 on 2 rows
+    * Seeder for perf environments:
+        - student.seed.count=5000000 -> N students with "real looking" data (ages mostly 18-24, a few older, mixed email domains)
+        - generated in PARALLEL (1 chunk of 50,000 rows per task, several threads)
+        - loaded with the db's BULK path, NOT save():
+            Postgres -> COPY student FROM STDIN (streams CSV straight into the table, no per-row INSERT, easily 100k+ rows/s)
+            H2       -> batched multi-row INSERT (H2 has no COPY)
+        - logs progress + rows/s as it goes
+        - warm restart: table already has >= N rows -> skip (so ddl-auto=update/validate restarts dont seed again)
+    * Ids: we take a block of ids ourselves and move `student_sequence` past it at the end -> pooled-lo (LVL 1) keeps working after the seed
+    * Same seed number -> same data every run (SplittableRandom per chunk) -> runs are comparable
+    * student.seed.enabled has 3 values:
+        dev   (default when not set) -> the old Tom + Alex
+        true                         -> the bulk seeder
+        false                        -> NO seeding at all (prod, scaled out instances, tests that bring their own rows)              */
+
+    // 1) application.properties (perf profile)
+        student.seed.enabled=true
+        student.seed.count=5000000
+        student.seed.threads=4                                                          //! ~ number of db cores. More threads than the db can write with just adds lock waits
+        student.seed.chunk-size=50000
+        student.seed.random-seed=42
+
+    // 2) Seed Properties.......................................................... MainPackage/StudentPackage/StudentSeedProperties.java
+        @ConfigurationProperties(prefix = "student.seed")                              //! binds student.seed.* from application.properties into this record (chunk-size -> chunkSize)
+        public record StudentSeedProperties(
+                @DefaultValue("dev") String enabled,                                    //! enabled = dev | true | false (String, not boolean -> "dev" binds)
+                @DefaultValue("100000") long count,                                     //! @DefaultValue -> a missing key gets this, not 0 (0 threads / 0 chunk size would blow up the seeder)
+                @DefaultValue("4") int threads,
+                @DefaultValue("50000") int chunkSize,
+                @DefaultValue("42") long randomSeed) {
+
+            public StudentSeedProperties {                                              // compact constructor -> runs on every bind -> a bad value fails at STARTUP, not mid-seed
+                if (count < 0 || threads < 1 || chunkSize < 1){
+                    throw new IllegalArgumentException("student.seed: count must be >= 0, threads and chunk-size must be >= 1");
+                }
+            }
+        }
+
+    // 3) Configuration............................................................ MainPackage/StudentPackage/StudentConfig.java
+        @Configuration
+        @EnableConfigurationProperties(StudentSeedProperties.class)
+        public class StudentConfig {
+            private static final Logger log = LoggerFactory.getLogger(StudentConfig.class);
+
+            @Bean
+            @ConditionalOnProperty(name = "student.seed.enabled", havingValue = "dev", matchIfMissing = true)     //! dev default: the old Tom + Alex. `false` turns BOTH runners off
+            CommandLineRunner commandLineRunner(StudentRepository studentRepository){
+                return args -> {
+                    Student Tom = new Student("Tom", "Tommy@gmail.com", LocalDate.of(2000, Month.JANUARY, 5));
+                    Student Alex = new Student("Alex", "Alex@gmail.com", LocalDate.of(2001, Month.JANUARY, 18));
+                    studentRepository.saveAll(List.of(Tom, Alex));
+                };
+            }
+
+            @Bean
+            @ConditionalOnProperty(name = "student.seed.enabled", havingValue = "true")  //! perf environments: the bulk seeder instead
+            CommandLineRunner studentSeeder(DataSource dataSource, JdbcTemplate jdbcTemplate, StudentSeedProperties seed){
+                return args -> {
+                    Long existing = jdbcTemplate.queryForObject("SELECT count(*) FROM student", Long.class);
+                    if (existing != null && existing >= seed.count()){
+                        log.info("Seed skipped: student already has {} rows", existing);   // warm restart
+                        return;
+                    }
+                    boolean postgres = jdbcTemplate.execute((ConnectionCallback<Boolean>) c ->
+                            c.getMetaData().getDatabaseProductName().equals("PostgreSQL"));
+                    long firstId = jdbcTemplate.queryForObject("SELECT coalesce(max(id), 0) + 1 FROM student", Long.class);
+                    long chunks = (seed.count() + seed.chunkSize() - 1) / seed.chunkSize();
+                    AtomicLong loaded = new AtomicLong();
+                    long start = System.nanoTime();
+
+                    ExecutorService pool = Executors.newFixedThreadPool(seed.threads());
+                    try {
+                        List<Future<?>> tasks = new ArrayList<>();
+                        for (long chunk = 0; chunk < chunks; chunk++){
+                            long from = chunk * seed.chunkSize();
+                            int rows = (int) Math.min(seed.chunkSize(), seed.count() - from);
+                            long chunkNumber = chunk;
+                            tasks.add(pool.submit(() -> {
+                                List<Object[]> students = StudentGenerator.generate(firstId + from, rows, seed.randomSeed() + chunkNumber);
+                                if (postgres){
+                                    StudentBulkLoader.copyIn(dataSource, students);     //! COPY
+                                } else {
+                                    StudentBulkLoader.batchInsert(jdbcTemplate, students);   //! multi-row INSERT
+                                }
+                                long done = loaded.addAndGet(rows);
+                                double seconds = (System.nanoTime() - start) / 1e9;
+                                log.info("Seeded {}/{} students ({} rows/s)", done, seed.count(), (long) (done / seconds));
+                                return null;
+                            }));
+                        }
+                        for (Future<?> task : tasks){
+                            task.get();                                                 //! wait for all chunks + rethrow the first failure
+                        }
+                    } finally {
+                        pool.shutdown();
+                    }
+
+                    long lastId = firstId + seed.count() - 1;
+                    jdbcTemplate.execute(postgres
+                            ? "SELECT setval('student_sequence', " + (lastId + 1) + ", false)"  //! next nextval() = lastId + 1 -> Hibernate's next id block starts after the seeded ids
+                            : "ALTER SEQUENCE student_sequence RESTART WITH " + (lastId + 1));
+                    if (postgres){
+                        jdbcTemplate.execute("ANALYZE student");                        //! fresh planner stats -> the dob/email indexes get used right away
+                    }
+                    log.info("Seed done: {} students in {}s", seed.count(), (System.nanoTime() - start) / 1_000_000_000);
+                };
+            }
+        }
+
+    // 4) Generator................................................................ MainPackage/StudentPackage/StudentGenerator.java
+        public final class StudentGenerator {
+            private static final String[] FIRST_NAMES = {"Tom", "Alex", "Ella", "Maria", "Wei", "Omar", "Priya", "Lucas", "Aisha", "Noah"};   // ...longer list in real code
+            private static final String[] DOMAINS = {"gmail.com", "gmail.com", "gmail.com", "yahoo.com", "outlook.com", "university.edu"};   //! repeated = weighted (50% gmail)
+            private static final LocalDate TODAY = LocalDate.now();
+
+            private StudentGenerator(){}
+
+            public static List<Object[]> generate(long firstId, int rows, long randomSeed){    //! Object[] {id, name, email, dob} -> no entities, nothing for Hibernate to track
+                SplittableRandom random = new SplittableRandom(randomSeed);             //! 1 random per chunk -> no sharing between threads, same seed = same data
+                List<Object[]> students = new ArrayList<>(rows);
+                for (int i = 0; i < rows; i++){
+                    long id = firstId + i;
+                    String name = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)];
+                    String email = name.toLowerCase() + "." + id + "@" + DOMAINS[random.nextInt(DOMAINS.length)];   //! id in the email -> always unique (unique index from LVL 2)
+                    int age = random.nextInt(100) < 85
+                            ? 18 + random.nextInt(7)                                    // 85% are 18-24
+                            : 25 + random.nextInt(40);                                  // 15% are 25-64
+                    LocalDate dob = TODAY.minusYears(age).minusDays(random.nextInt(365));
+                    students.add(new Object[]{id, name, email, dob});
+                }
+                return students;
+            }
+        }
+
+    // 5) Bulk Loader.............................................................. MainPackage/StudentPackage/StudentBulkLoader.java
+        public final class StudentBulkLoader {
+            private static final int INSERT_ROWS = 1000;                                //! rows per multi-row INSERT on H2
+
+            private StudentBulkLoader(){}
+
+            public static void copyIn(DataSource dataSource, List<Object[]> students) throws SQLException, IOException {
+                StringBuilder csv = new StringBuilder(students.size() * 64);
+                for (Object[] s : students){
+                    csv.append(s[0]).append(',').append(s[1]).append(',').append(s[2]).append(',').append(s[3]).append(",0\n");   // id,name,email,dob,version (names/emails have no commas or quotes)
+                }
+                try (Connection connection = dataSource.getConnection()){               //! own connection per thread (autocommit -> each chunk commits by itself)
+                    CopyManager copyManager = connection.unwrap(PGConnection.class).getCopyAPI();   //! Postgres JDBC driver's COPY API
+                    copyManager.copyIn("COPY student (id, name, email, dob, version) FROM STDIN WITH (FORMAT csv)",
+                            new StringReader(csv.toString()));
+                }
+            }
+
+            public static void batchInsert(JdbcTemplate jdbcTemplate, List<Object[]> students){
+                for (int from = 0; from < students.size(); from += INSERT_ROWS){
+                    List<Object[]> rows = students.subList(from, Math.min(from + INSERT_ROWS, students.size()));
+                    String values = String.join(",", Collections.nCopies(rows.size(), "(?, ?, ?, ?, 0)"));
+                    Object[] params = rows.stream().flatMap(Arrays::stream).toArray();
+                    jdbcTemplate.update("INSERT INTO student (id, name, email, dob, version) VALUES " + values, params);   //! 1 statement = 1000 rows
+                }
+            }
+        }
+
+
+/*--------------------------------------- LVL 6 - Group Commit for registerStudent (opt-in write-behind queue) ---------------------------------------
+    * Every registerStudent() = its own transaction = its own COMMIT -> Postgres has to fsync the WAL to disk before it says OK
+        -> at peak we are limited by "how many fsyncs per second", not by CPU
+    * GROUP COMMIT: collect the registrations that arrive within a few ms -> 1 transaction -> 1 COMMIT (1 fsync) for all of them
+        request 1 ─┐
+        request 2 ─┼─> bounded queue ─> flusher thread: every 5ms or 500 students -> 1 transaction (IN check + batch INSERT + COMMIT)
+        request 3 ─┘                                                      └─> completes each request's CompletableFuture AFTER the commit
+    * Durability is the SAME as before: a client only gets its 200 once its row is committed (the response just waits a few ms longer)
+    * Duplicate emails are handled PER STUDENT -> 1 bad email in a batch fails only that request with 409, the rest still commit
+    * Queue full -> 503 right away (never an unbounded queue in memory)
+    * Opt-in: student.write-behind.enabled=true, otherwise POST works exactly like LVL 2                                                   */
+
+    // 1) application.properties
+        student.write-behind.enabled=true
+        student.write-behind.max-batch=500                                              //! flush when this many are waiting...
+        student.write-behind.window-ms=5                                                //! ...or when the oldest one has waited this long
+        student.write-behind.queue-capacity=10000
+
+    // 2) Write-Behind Component................................................... MainPackage/StudentPackage/StudentWriteBehind.java
+        @Component
+        @ConditionalOnProperty(name = "student.write-behind.enabled", havingValue = "true")
+        public class StudentWriteBehind implements SmartLifecycle {
+            private static final Logger log = LoggerFactory.getLogger(StudentWriteBehind.class);
+
+            record Pending(Student student, CompletableFuture<Long> result) {}          //! 1 waiting registration + the future its HTTP request is waiting on
+
+            private final BlockingQueue<Pending> queue;
+            private final StudentRepository studentRepository;
+            private final StudentSearchIndexer studentSearchIndexer;                    // Tutorial 3 LVL 6
+            private final StudentVersions studentVersions;                              // Tutorial 5 LVL 2
+            private final StudentChangeFeed studentChangeFeed;                          // Tutorial 6 LVL 4
+            private final TransactionTemplate transactionTemplate;                      //! run code in a transaction without @Transactional (we're on our own thread)
+            private final int maxBatch;
+            private final long windowNanos;
+            private volatile boolean running;
+            private Thread flusher;
+
+            @Autowired
+            public StudentWriteBehind(StudentRepository studentRepository, StudentSearchIndexer studentSearchIndexer,
+                                      StudentVersions studentVersions, StudentChangeFeed studentChangeFeed,
+                                      PlatformTransactionManager transactionManager,
+                                      @Value("${student.write-behind.max-batch}") int maxBatch,
+                                      @Value("${student.write-behind.window-ms}") long windowMs,
+                                      @Value("${student.write-behind.queue-capacity}") int queueCapacity){
+                this.studentRepository = studentRepository;
+                this.studentSearchIndexer = studentSearchIndexer;
+                this.studentVersions = studentVersions;
+                this.studentChangeFeed = studentChangeFeed;
+                this.transactionTemplate = new TransactionTemplate(transactionManager);
+                this.maxBatch = maxBatch;
+                this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMs);
+                this.queue = new ArrayBlockingQueue<>(queueCapacity);
+            }
+
+            public CompletableFuture<Long> register(Student student){                   //! called from the request thread
+                CompletableFuture<Long> result = new CompletableFuture<>();
+                boolean queued;
+                synchronized (this){                                                    //! same lock as stop() -> once running is false, nothing new can get into the queue
+                    queued = running && queue.offer(new Pending(student, result));     //  (without it: check running -> stop() + flusher drains + exits -> offer() -> future never completes)
+                }                                                                       //! offer() never blocks -> the lock is held for nanoseconds
+                if (!queued){
+                    result.completeExceptionally(unavailable());
+                }
+                return result;
+            }
+
+            private void flushLoop(){
+                List<Pending> batch = new ArrayList<>(maxBatch);
+                while (running || !queue.isEmpty()){
+                    try {
+                        Pending first = queue.poll(100, TimeUnit.MILLISECONDS);         // 1) wait for the 1st registration
+                        if (first == null) continue;
+                        batch.add(first);
+                        long deadline = System.nanoTime() + windowNanos;                // 2) then collect more until the window closes or the batch is full
+                        while (batch.size() < maxBatch){
+                            long left = deadline - System.nanoTime();
+                            Pending next = left > 0 ? queue.poll(left, TimeUnit.NANOSECONDS) : queue.poll();
+                            if (next == null) break;
+                            batch.add(next);
+                            queue.drainTo(batch, maxBatch - batch.size());              //    grab whatever else is already waiting in 1 go
+                        }
+                        flush(batch);                                                   // 3) 1 transaction for all of them
+                    } catch (InterruptedException e){                                   //! interrupted mid collect -> nobody will flush these anymore
+                        batch.forEach(p -> p.result().completeExceptionally(unavailable()));   // 1) fail what we already took out of the queue
+                        failQueued();                                                   // 2) + whatever is still waiting in it
+                        Thread.currentThread().interrupt();                             // 3) keep the interrupt flag for whoever interrupted us
+                        return;                                                         // 4) and stop (the finally below still clears the batch)
+                    } catch (RuntimeException e){
+                        batch.forEach(p -> p.result().completeExceptionally(e));        // never leave a request hanging
+                    } finally {
+                        batch.clear();
+                    }
+                }
+            }
+
+            private void flush(List<Pending> batch){
+                Map<Pending, RuntimeException> rejected = new HashMap<>();
+                List<Pending> accepted = new ArrayList<>(batch.size());
+                try {
+                    transactionTemplate.executeWithoutResult(status -> {
+                        Set<String> existing = studentRepository.findExistingEmails(    //! 1 IN query for the whole batch (LVL 1)
+                                batch.stream().map(p -> p.student().getEmail()).toList());
+                        Set<String> seen = new HashSet<>();
+                        for (Pending p : batch){
+                            String email = p.student().getEmail();
+                            if (existing.contains(email) || !seen.add(email)){         //! in db already OR twice in THIS batch -> only this one fails
+                                rejected.put(p, new ResponseStatusException(HttpStatus.CONFLICT, "Email exists!"));
+                            } else {
+                                accepted.add(p);
+                            }
+                        }
+                        studentRepository.saveAllAndFlush(accepted.stream().map(Pending::student).toList());   // batched INSERTs (the persistence context is closed with the transaction, no clear() needed)
+                        //! flush THROUGH the repository proxy -> a unique violation comes out as Spring's DataIntegrityViolationException.
+                        //  entityManager.flush() on the shared EntityManager would throw Hibernate's raw exception -> the catch below would never run
+                        accepted.forEach(p -> afterCommitHooks(p.student()));
+                        if (!accepted.isEmpty()) studentVersions.bumpAfterCommit();
+                    });                                                                 //! COMMIT happens here (1 fsync) -> the hooks only run if it succeeds
+                } catch (DataIntegrityViolationException e){
+                    // someone else inserted 1 of our emails between the IN check and the commit -> the whole batch rolled back
+                    // -> fall back to 1 by 1 so only the real duplicate gets a 409
+                    accepted.forEach(p -> registerOne(p));
+                    rejected.forEach((p, ex) -> p.result().completeExceptionally(ex));
+                    return;
+                }
+                accepted.forEach(p -> p.result().complete(p.student().getId()));        //! AFTER commit -> the client's 200 means "its on disk"
+                rejected.forEach((p, ex) -> p.result().completeExceptionally(ex));
+            }
+
+            private void registerOne(Pending p){
+                try {
+                    p.student().setId(null);                                            //! rolled back -> the id Hibernate gave it was never saved
+                    p.student().setVersion(null);
+                    transactionTemplate.executeWithoutResult(status -> {               // own transaction (LVL 2 path), but ours -> the hooks can wait for its commit
+                        studentRepository.saveAndFlush(p.student());
+                        afterCommitHooks(p.student());
+                        studentVersions.bumpAfterCommit();
+                    });
+                    p.result().complete(p.student().getId());
+                } catch (DataIntegrityViolationException e){
+                    p.result().completeExceptionally(StudentService.isEmailConflict(e)
+                            ? new ResponseStatusException(HttpStatus.CONFLICT, "Email exists!")   // same mapping as registerStudent (LVL 2)
+                            : e);                                                       // some other constraint -> not a 409
+                }
+            }
+
+            private void failQueued(){
+                List<Pending> left = new ArrayList<>();
+                queue.drainTo(left);
+                left.forEach(p -> p.result().completeExceptionally(unavailable()));
+            }
+
+            private static ResponseStatusException unavailable(){
+                return new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Registration queue is full or shutting down, try again");
+            }
+
+            private void afterCommitHooks(Student student){                            //! same as StudentService.registerStudent -> a group-committed Student is searchable + on the SSE feed too
+                studentSearchIndexer.putAfterCommit(student);
+                studentChangeFeed.publishAfterCommit(StudentChange.Type.CREATED, student.getId());
+            }
+
+            @Override
+            public void start(){
+                running = true;
+                flusher = Thread.ofPlatform().name("student-group-commit").start(this::flushLoop);
+            }
+
+            @Override
+            public void stop(){                                                         //! on shutdown: stop taking new ones, flush what is queued
+                synchronized (this){
+                    running = false;
+                }
+                try {
+                    flusher.join(TimeUnit.SECONDS.toMillis(10));
+                } catch (InterruptedException e){
+                    Thread.currentThread().interrupt();
+                }
+                if (flusher.isAlive()){                                                 //! db too slow to drain in 10s -> interrupt it -> it fails the rest with 503 (see flushLoop)
+                    flusher.interrupt();
+                }
+            }
+
+            @Override
+            public boolean isRunning(){ return running; }
+        }
+
+    // 3) Controller............................................................... MainPackage/StudentPackage/StudentController.java
+        @RestController
+        @RequestMapping(path = "api/v1/student")
+        public class StudentController {
+            private final StudentService studentService;
+            private final Optional<StudentWriteBehind> writeBehind;                     //! Optional -> empty when student.write-behind.enabled is off
+            // Constructor...
+
+            @PostMapping
+            public CompletableFuture<Long> registerStudent(@RequestBody Student student){   //! Spring MVC: CompletableFuture return -> the Tomcat thread is released, response is sent when the future completes
+                if (writeBehind.isPresent()){
+                    return writeBehind.get().register(student);                         // group commit path
+                }
+                studentService.registerStudent(student);                                // normal path (LVL 2)
+                return CompletableFuture.completedFuture(student.getId());
+            }
+        }
+        // !A failed future with ResponseStatusException still becomes the right status (409 / 503). Set spring.mvc.async.request-timeout above window-ms + commit time
+        // !No studentCache.evictAfterCommit here -> a brand new id was never cached. The ETag bump, search index + SSE feed are in flush() / registerOne()
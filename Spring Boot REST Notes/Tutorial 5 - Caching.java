@@ -0,0 +1,430 @@
+/* Caching Students in memory
+    * findStudentByEmail() and findById() go to Postgres EVERY time, even though most traffic asks for the same few "hot" Students over and over
+    * Cache = keep recently used Students in the app's memory -> hot Students never touch the db
+    * The 2 hard parts of any cache:
+        1) BOUNDED  -> cant keep every Student (thats just loading the whole table again). Need a max size + expiry (TTL)
+        2) CORRECT  -> after deleteStudent() / an update, nobody should get the old Student back from the cache
+
+--------------------------------------- LVL 1 - Read-Through Cache for findById / findStudentByEmail (Caffeine) ---------------------------------------
+    * Read-through: ask the cache -> if its there (HIT) return it -> if not (MISS) load from db, put it in the cache, return it
+    * Caffeine = in-memory cache library (what Spring Boot uses for spring.cache.type=caffeine)
+        - maximumSize -> when full it uses W-TinyLFU to decide what to keep: a new Student only gets IN if it is used more often than the one it would push OUT
+          (so 1 big scan of cold Students cant flush out the hot ones)
+        - expireAfterWrite -> every entry is dropped after the TTL anyway (safety net if we ever miss an invalidation)
+        - recordStats -> hit / miss / eviction counters -> Micrometer -> /actuator/metrics/cache.gets, cache.evictions
+    * 2 caches:
+        byId        Long   -> Student
+        idByEmail   String -> Long (just the id!) -> then look the Student up in byId
+        -> a MISS on email only asks the db for the id, then loads the Student through byId (so every Student is loaded inside Caffeine's compute)
+        -> only 1 copy of each Student. Deleting/updating a Student only has to evict byId. An email entry pointing at a gone/changed Student is
+           caught when we read it (we check the email still matches) -> so it can never return a wrong Student
+    * Evict AFTER COMMIT -> if we evicted before the commit, another request could re-load the old row into the cache before our change is visible      */
+
+    // 0) pom.xml
+        <dependency>
+            <groupId>com.github.ben-manes.caffeine</groupId>
+            <artifactId>caffeine</artifactId>
+        </dependency>
+        <dependency>                                                                    <!-- for /actuator/metrics -->
+            <groupId>org.springframework.boot</groupId>
+            <artifactId>spring-boot-starter-actuator</artifactId>
+        </dependency>
+
+    // 1) application.properties
+        student.cache.max-size=100000                                                   //! max Students kept in memory
+        student.cache.ttl=10m                                                           //! every entry expires 10 min after it was loaded
+        management.endpoints.web.exposure.include=health,metrics
+
+    // 2) Cache Component.......................................................... MainPackage/StudentPackage/StudentCache.java
+        @Component                                                                      //! Spring makes 1 (singleton) StudentCache -> every request shares the same cache
+        public class StudentCache {
+            private final Cache<Long, Student> byId;
+            private final Cache<String, Long> idByEmail;
+
+            @Autowired
+            public StudentCache(MeterRegistry meterRegistry,                            //! MeterRegistry comes from actuator
+                                @Value("${student.cache.max-size}") long maxSize,       //! @Value -> inject a value from application.properties
+                                @Value("${student.cache.ttl}") Duration ttl){
+                this.byId = Caffeine.newBuilder()
+                        .maximumSize(maxSize)                                           // size bound (W-TinyLFU eviction)
+                        .expireAfterWrite(ttl)                                          // time bound
+                        .recordStats()                                                  // hit/miss/eviction counters
+                        .build();
+                this.idByEmail = Caffeine.newBuilder()
+                        .maximumSize(maxSize)
+                        .expireAfterWrite(ttl)
+                        .recordStats()
+                        .build();
+                CaffeineCacheMetrics.monitor(meterRegistry, byId, "student.byId");      //! shows up as cache.gets{cache=student.byId,result=hit|miss}, cache.evictions{cache=student.byId}
+                CaffeineCacheMetrics.monitor(meterRegistry, idByEmail, "student.byEmail");
+            }
+
+            public Optional<Student> getById(Long id, Function<Long, Optional<Student>> loader){
+                return Optional.ofNullable(byId.get(id, key -> loader.apply(key).orElse(null)));   //! loader returns null -> nothing cached (we never cache "not found", so a new Student is seen right away)
+            }
+
+            public Optional<Student> getByEmail(String email, Function<String, Optional<Long>> idLoader, Function<Long, Optional<Student>> loader){
+                Long id = idByEmail.getIfPresent(email);
+                if (id != null){
+                    Student cached = byId.getIfPresent(id);
+                    if (cached != null && email.equals(cached.getEmail())){
+                        return Optional.of(cached);                                     // HIT (and the Student still has this email)
+                    }
+                    idByEmail.invalidate(email);                                        // stale -> Student was deleted/changed email -> forget it and go to the db
+                }
+                Optional<Long> foundId = idLoader.apply(email);                         // MISS -> only the id from the db (index only lookup on student_email_unique)
+                if (foundId.isEmpty()){
+                    return Optional.empty();
+                }
+                Optional<Student> student = getById(foundId.get(), loader);             //! load the Student THROUGH byId.get() -> a delete that commits while we load waits for
+                                                                                        //  the load and then evicts it. (Loading it here and byId.put() after would put a deleted Student back for the whole TTL)
+                if (student.isEmpty() || !email.equals(student.get().getEmail())){
+                    return Optional.empty();                                            // deleted / email changed between the 2 reads -> the email isnt his anymore
+                }
+                idByEmail.put(email, foundId.get());
+                return student;
+            }
+
+            public void evictAfterCommit(Long id){                                      //! call this from every method that changes/deletes a Student
+                if (TransactionSynchronizationManager.isSynchronizationActive()){       // inside a @Transactional method -> wait until the commit
+                    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                        @Override
+                        public void afterCommit(){
+                            byId.invalidate(id);
+                        }
+                    });
+                } else {
+                    byId.invalidate(id);                                                // no transaction -> the change is already committed
+                }
+            }
+        }
+
+    // 3) Repository............................................................... MainPackage/StudentPackage/StudentRepository.java
+        @Repository
+        public interface StudentRepository extends JpaRepository<Student, Long> {
+            @Query("SELECT s.id FROM Student s WHERE s.email = ?1")                    //! only the id -> the email MISS path then loads the Student through the byId cache
+            Optional<Long> findStudentIdByEmail(String email);
+        }
+
+    // 4) Service.................................................................. MainPackage/StudentPackage/StudentService.java
+        @Service
+        public class StudentService {
+            private final StudentRepository studentRepository;
+            private final StudentCache studentCache;
+            @Autowired
+            public StudentService(StudentRepository studentRepository, StudentCache studentCache){
+                this.studentRepository = studentRepository;
+                this.studentCache = studentCache;
+            }
+
+            public Optional<Student> getStudent(Long studentId){                        // GET api/v1/student/{studentId}
+                return studentCache.getById(studentId, studentRepository::findById);    //! method reference -> the cache calls findById only on a MISS
+            }
+
+            public Optional<Student> findStudentByEmail(String email){
+                return studentCache.getByEmail(email, studentRepository::findStudentIdByEmail, studentRepository::findById);
+            }
+
+            public void registerStudent(Student student){
+                // saveAndFlush + catch conflict (Tutorial 4 LVL 2)...
+                studentCache.evictAfterCommit(student.getId());                         // nothing cached for a brand new id, but keeps every write path the same
+            }
+
+            public void deleteStudent(Long studentId){
+                // delete...
+                studentCache.evictAfterCommit(studentId);                               //! after this, getStudent(id) and findStudentByEmail(hisEmail) both go back to the db
+            }
+
+            @Transactional
+            public void updateStudent(Long studentId, String name, String email){
+                Student student = studentRepository.findById(studentId)                //! NOT from the cache -> cached Students are shared by all threads, never change them. Need the managed one for dirty checking
+                        .orElseThrow(() -> new IllegalStateException("Student Id "+studentId+" does not exist!"));
+                // setName / setEmail...
+                studentCache.evictAfterCommit(studentId);                               //! runs after the UPDATE is committed
+            }
+        }
+
+    // Checking it works:
+        GET /actuator/metrics/cache.gets?tag=cache:student.byId&tag=result:hit          // hit count
+        GET /actuator/metrics/cache.gets?tag=cache:student.byId&tag=result:miss         // miss count
+        GET /actuator/metrics/cache.evictions?tag=cache:student.byId                    // pushed out because the cache was full
+
+
+/*--------------------------------------- LVL 2 - Conditional GET (ETag / If-None-Match -> 304 Not Modified) ---------------------------------------
+    * Dashboards poll GET api/v1/student every few seconds -> every poll = query + serialize the whole page, even when NOTHING changed
+    * HTTP has caching built in:
+        1) 1st GET  -> server answers 200 + header  ETag: "a1b2-17-2026-10-18"          (ETag = a "version label" for that response)
+        2) next GET -> client sends header           If-None-Match: "a1b2-17-2026-10-18"
+        3) nothing changed -> server answers 304 Not Modified with NO body -> client keeps using what it has
+    * The trick is making step 3 FREE: decide "nothing changed" WITHOUT running the query or serializing anything
+        - Collection ETag  -> an in-memory counter (AtomicLong) bumped after every register/delete/update commit
+        - Item ETag        -> the Student's @Version column (Tutorial 4 LVL 4) -> the Student comes from StudentCache (LVL 1) -> no db on a hit
+        - + today's date in both -> `age` in the JSON changes at midnight even if the row didnt
+    * Spring's ShallowEtagHeaderFilter does NOT help here: it hashes the body AFTER the query + serialization (only saves bandwidth)
+    * 1 URL, several formats (JSON / CBOR / Protobuf, Tutorial 3 LVL 5) -> the ETag MUST include the format + every response says `Vary: Accept`
+        -> otherwise a client (or a shared cache in between) that got the JSON ETag could get a 304 / the body for a CBOR or Protobuf request
+    * ORDER MATTERS (collection):
+        read the counter BEFORE the query  +  bump it AFTER commit   -> worst case a client gets an extra 200, never a stale 304
+    * !The counter lives in 1 JVM. With several instances behind a load balancer each has its own counter -> instance B doesnt know about
+      writes that went to instance A -> only use the collection ETag with 1 instance (or share the counter, ex: Redis INCR)
+      The item ETag is safe everywhere since @Version lives in the db                                                            */
+
+    // 1) Versions Component....................................................... MainPackage/StudentPackage/StudentVersions.java
+        @Component
+        public class StudentVersions {
+            private final String epoch = Long.toHexString(System.currentTimeMillis()); //! new prefix on every restart -> counter going back to 0 cant match an ETag from before the restart
+            private final AtomicLong tableVersion = new AtomicLong();                   //! AtomicLong -> thread safe counter without locks
+
+            public String collectionEtag(StudentFormat format){                         //! JSON / CBOR / PROTOBUF (Tutorial 3 LVL 5) -> each representation has its own ETag
+                return "\"" + epoch + "-" + tableVersion.get() + "-" + LocalDate.now() + "-" + suffix(format) + "\"";     //! strong ETag = quoted string
+            }
+
+            public String itemEtag(Student student, StudentFormat format){
+                return "\"" + student.getId() + "-" + student.getVersion() + "-" + LocalDate.now() + "-" + suffix(format) + "\"";
+            }
+
+            private static String suffix(StudentFormat format){
+                return format.name().toLowerCase(Locale.ROOT);                          // "json" / "cbor" / "protobuf"
+            }
+
+            public void bumpAfterCommit(){                                              //! call from every write path (register, batch, delete, bulk delete, update)
+                if (TransactionSynchronizationManager.isSynchronizationActive()){
+                    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                        @Override
+                        public void afterCommit(){
+                            tableVersion.incrementAndGet();
+                        }
+                    });
+                } else {
+                    tableVersion.incrementAndGet();
+                }
+            }
+        }
+
+    // 2) Service.................................................................. MainPackage/StudentPackage/StudentService.java
+        @Service
+        public class StudentService {
+            // Injecting Repository + StudentCache + StudentVersions & Constructor...
+
+            public void registerStudent(Student student){
+                // saveAndFlush + catch conflict...
+                studentCache.evictAfterCommit(student.getId());
+                studentVersions.bumpAfterCommit();                                      //! same place as every cache eviction
+            }
+            // registerStudents, deleteStudent, deleteStudents, updateStudent -> add studentVersions.bumpAfterCommit() next to studentCache.evictAfterCommit(...)
+        }
+
+    // 3) Controller............................................................... MainPackage/StudentPackage/StudentController.java
+        @RestController
+        @RequestMapping(path = "api/v1/student")
+        public class StudentController {
+            private final StudentService studentService;
+            private final StudentVersions studentVersions;
+            private final ContentNegotiationManager contentNegotiationManager;
+            // Constructor...
+
+            //! still ONE method per URL (JSON first in produces -> the default stays JSON). The format comes from StudentFormat.negotiate (Tutorial 3 LVL 5)
+            //  = the same Accept rules Spring uses to pick the converter -> goes into the ETag
+            @GetMapping(produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE, StudentFormatConfig.PROTOBUF_VALUE})
+            public ResponseEntity<Object> getStudents(
+                    @RequestParam(required = false) Long after,
+                    @RequestParam(required = false) Integer limit,
+                    @RequestParam(required = false) Integer minAge,
+                    @RequestParam(required = false) Integer maxAge,
+                    NativeWebRequest request) throws HttpMediaTypeNotAcceptableException {   //! NativeWebRequest (is a WebRequest) -> checkNotModified + content negotiation
+                StudentFormat format = StudentFormat.negotiate(contentNegotiationManager, request);
+                return conditionalGet(request, studentVersions.collectionEtag(format), () -> {
+                    StudentPage page = studentService.getStudents(after, limit, minAge, maxAge);
+                    return format == StudentFormat.PROTOBUF ? StudentProtoMapper.toMessage(page) : page;
+                });
+            }
+
+            @GetMapping(path = "{studentId}", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE})
+            public ResponseEntity<Object> getStudent(@PathVariable("studentId") Long studentId, NativeWebRequest request) throws HttpMediaTypeNotAcceptableException {
+                Student student = findStudent(studentId);                              //! from StudentCache -> usually no db
+                StudentFormat format = StudentFormat.negotiate(contentNegotiationManager, request);
+                return conditionalGet(request, studentVersions.itemEtag(student, format), () -> student);
+            }
+
+            private Student findStudent(Long studentId){
+                return studentService.getStudent(studentId)
+                        .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Student Id "+studentId+" does not exist!"));
+            }
+
+            private <T> ResponseEntity<T> conditionalGet(WebRequest request, String etag, Supplier<T> body){   // etag = read the version FIRST
+                if (request.checkNotModified(etag)){                                    // 1) If-None-Match matches -> 304
+                    return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                            .eTag(etag)
+                            .varyBy(HttpHeaders.ACCEPT)                                 //    Vary on the 304 too
+                            .build();                                                   //    no query, no body (Supplier never called)
+                }
+                return ResponseEntity.ok()
+                        .eTag(etag)                                                     // 2) changed -> normal 200 with the ETag for next time
+                        .varyBy(HttpHeaders.ACCEPT)                                     //! `Vary: Accept` -> caches keep 1 copy per format
+                        .body(body.get());
+            }
+        }
+
+    // Try it:
+        curl -i localhost:8080/api/v1/student                                           // 200 + ETag: "18f3c2a1b00-0-2026-10-18-json" + Vary: Accept
+        curl -i -H 'If-None-Match: "18f3c2a1b00-0-2026-10-18-json"' localhost:8080/api/v1/student   // 304, empty body
+        curl -i -H 'Accept: application/cbor' -H 'If-None-Match: "18f3c2a1b00-0-2026-10-18-json"' localhost:8080/api/v1/student   // 200 -> JSON ETag doesnt match the CBOR one
+
+
+/*--------------------------------------- LVL 3 - Hibernate Second-Level Cache + Query Cache (JCache / Ehcache) ---------------------------------------
+    * LVL 1 caches in the SERVICE (we evict by hand). This caches inside HIBERNATE (Hibernate evicts by itself):
+        1st level cache = the persistence context -> only lives for 1 transaction (Tutorial 3 LVL 2)
+        2nd level cache = shared by ALL transactions -> findById(7) in transaction A, then findById(7) in transaction B -> B gets it from memory, no SELECT
+        query cache     = remembers the RESULT ids of a query (findStudentByEmail("x") -> [7]) -> then loads 7 from the 2nd level cache
+    * JCache (JSR-107) = standard Java cache API. Hibernate talks JCache, Ehcache 3 is the provider underneath -> regions sized in ehcache.xml
+    * Invalidation is Hibernate's job and stays correct for:
+        save/saveAll          -> new/changed Student is put in the region after commit
+        deleteById / delete() -> entry removed
+        @Transactional dirty checked update -> entry updated after commit (READ_WRITE uses soft locks so nobody reads it half way)
+        any write to the student table through Hibernate -> the table's "update timestamp" moves -> ALL cached query results for student are thrown away
+      !NOT seen by Hibernate:
+        @Modifying JPQL bulk DELETE/UPDATE (Tutorial 4 LVL 3/4) -> Hibernate plays safe and clears the WHOLE student region (correct, but a cold cache after each one)
+        COPY / JdbcTemplate / native SQL (seeder in Tutorial 4 LVL 5) -> call entityManagerFactory.getCache().evictAll() after it
+        other apps writing to the same db -> keep the region TTL short                                                               */
+
+    // 0) pom.xml
+        <dependency>
+            <groupId>org.hibernate.orm</groupId>
+            <artifactId>hibernate-jcache</artifactId>                                   <!-- Hibernate <-> JCache -->
+        </dependency>
+        <dependency>
+            <groupId>org.ehcache</groupId>
+            <artifactId>ehcache</artifactId>
+            <classifier>jakarta</classifier>                                            <!-- JCache provider -->
+        </dependency>
+        <dependency>
+            <groupId>org.hibernate.orm</groupId>
+            <artifactId>hibernate-micrometer</artifactId>                               <!-- per region hit/miss metrics in /actuator/metrics -->
+        </dependency>
+
+    // 1) application.properties
+        spring.jpa.properties.hibernate.cache.use_second_level_cache=true
+        spring.jpa.properties.hibernate.cache.use_query_cache=true
+        spring.jpa.properties.hibernate.cache.region.factory_class=jcache
+        spring.jpa.properties.hibernate.javax.cache.provider=org.ehcache.jsr107.EhcacheCachingProvider
+        spring.jpa.properties.hibernate.javax.cache.uri=classpath:ehcache.xml
+        spring.jpa.properties.hibernate.javax.cache.missing_cache_strategy=fail         //! typo in a region name -> startup fails instead of an unbounded default cache
+        spring.jpa.properties.hibernate.generate_statistics=true                        //! needed for hit/miss numbers (small cost, counters only)
+
+    // 2) Region Sizes............................................................. src/main/resources/ehcache.xml
+        <config xmlns="http://www.ehcache.org/v3">
+            <cache alias="student">                                                     <!-- entity region: id -> Student data -->
+                <expiry><ttl unit="minutes">10</ttl></expiry>
+                <resources><heap unit="entries">100000</heap></resources>
+            </cache>
+            <cache alias="student-query">                                               <!-- query results: (query + params) -> ids -->
+                <expiry><ttl unit="minutes">10</ttl></expiry>
+                <resources><heap unit="entries">50000</heap></resources>
+            </cache>
+            <cache alias="default-update-timestamps-region">                            <!-- last write time per table (NEVER expire/evict this one) -->
+                <expiry><none/></expiry>
+                <resources><heap unit="entries">1000</heap></resources>
+            </cache>
+            <cache alias="default-query-results-region">
+                <expiry><ttl unit="minutes">10</ttl></expiry>
+                <resources><heap unit="entries">1000</heap></resources>
+            </cache>
+        </config>
+
+    // 3) Model.................................................................... MainPackage/StudentPackage/Student.java
+        @Entity
+        @Table(...)
+        @Cacheable                                                                      //! jakarta.persistence.Cacheable -> this entity may go in the 2nd level cache
+        @org.hibernate.annotations.Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "student")   //! READ_WRITE -> safe with concurrent updates. region = the ehcache.xml alias
+        public class Student {...}
+
+    // 4) Repository............................................................... MainPackage/StudentPackage/StudentRepository.java
+        @Repository
+        public interface StudentRepository extends JpaRepository<Student, Long> {
+            @QueryHints({
+                @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),       //! cache this query's result
+                @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "student-query")
+            })
+            @Query("SELECT s FROM Student s WHERE s.email = ?1")
+            Optional<Student> findStudentByEmail(String email);
+            // findStudentsAfter / streamAllStudents -> NOT cacheable (every page/stream is different, would just churn the cache)
+        }
+
+    // 5) Hit ratio per region
+        GET /actuator/metrics/hibernate.second.level.cache.requests?tag=region:student&tag=result:hit
+        GET /actuator/metrics/hibernate.second.level.cache.requests?tag=region:student&tag=result:miss
+        GET /actuator/metrics/hibernate.cache.query.requests?tag=result:hit
+        // or in code:
+        Statistics stats = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        CacheRegionStatistics student = stats.getDomainDataRegionStatistics("student");
+        double hitRatio = (double) student.getHitCount() / Math.max(1, student.getHitCount() + student.getMissCount());
+
+    // !With LVL 1 (StudentCache) also on, most findById calls never reach Hibernate. Use 1 of the 2 for Student lookups:
+    //  StudentCache -> fastest (no Hibernate at all) but every write path must evict by hand
+    //  2nd level    -> Hibernate keeps it right for every JPA write, incl. ones added later that forget to call evict
+
+    // 6) Tests.................................................................... src/test/java/MainPackage/StudentPackage/StudentSecondLevelCacheTest.java
+        @SpringBootTest(properties = {
+                "spring.datasource.url=jdbc:h2:mem:l2test;DB_CLOSE_DELAY=-1",
+                "spring.jpa.hibernate.ddl-auto=create-drop",
+                "student.seed.enabled=false"})                                          //! no seeding at all -> the tests own every row
+        class StudentSecondLevelCacheTest {
+            static final String TOM_EMAIL = "l2-tom@gmail.com";                         //! fixture emails nobody else seeds/registers
+            static final String NEW_EMAIL = "l2-new@gmail.com";
+
+            @Autowired StudentRepository studentRepository;
+            @Autowired EntityManagerFactory entityManagerFactory;
+            @Autowired PlatformTransactionManager transactionManager;
+            Statistics stats;
+            TransactionTemplate tx;
+            Long tomId;
+
+            @BeforeEach
+            void setUp(){
+                tx = new TransactionTemplate(transactionManager);
+                studentRepository.deleteAllInBatch();                                   //! clear BEFORE each test -> no test depends on what ran before it (or on a seeder)
+                tomId = studentRepository.save(new Student("Tom", TOM_EMAIL, LocalDate.of(2000, Month.JANUARY, 5))).getId();
+                entityManagerFactory.getCache().evictAll();                             // start every test cold
+                stats = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+                stats.clear();
+            }
+
+            @Test
+            void findByIdInSeparateTransactionsHitsTheDbOnce(){
+                tx.executeWithoutResult(s -> studentRepository.findById(tomId));        // 1st transaction -> SELECT + put in cache
+                tx.executeWithoutResult(s -> studentRepository.findById(tomId));        // 2nd transaction -> from cache
+                assertThat(stats.getPrepareStatementCount()).isEqualTo(1);              //! only 1 SQL statement for 2 lookups
+                assertThat(stats.getDomainDataRegionStatistics("student").getHitCount()).isEqualTo(1);
+            }
+
+            @Test
+            void findStudentByEmailUsesTheQueryCache(){
+                tx.executeWithoutResult(s -> studentRepository.findStudentByEmail(TOM_EMAIL));
+                tx.executeWithoutResult(s -> studentRepository.findStudentByEmail(TOM_EMAIL));
+                assertThat(stats.getPrepareStatementCount()).isEqualTo(1);
+                assertThat(stats.getQueryCacheHitCount()).isEqualTo(1);
+            }
+
+            @Test
+            void dirtyCheckedUpdateIsSeenByTheNextTransaction(){
+                tx.executeWithoutResult(s -> studentRepository.findById(tomId));        // cache it
+                tx.executeWithoutResult(s -> studentRepository.findById(tomId).orElseThrow().setName("Tommy"));   //! @Transactional style update, no save() call
+                String name = tx.execute(s -> studentRepository.findById(tomId).orElseThrow().getName());
+                assertThat(name).isEqualTo("Tommy");                                    // cache was updated, not stale
+            }
+
+            @Test
+            void deleteByIdRemovesItFromBothCaches(){
+                tx.executeWithoutResult(s -> studentRepository.findStudentByEmail(TOM_EMAIL));   // cache entity + query result
+                studentRepository.deleteById(tomId);
+                assertThat(tx.execute(s -> studentRepository.findById(tomId))).isEmpty();
+                assertThat(tx.execute(s -> studentRepository.findStudentByEmail(TOM_EMAIL))).isEmpty();   // query cache invalidated by the table timestamp
+            }
+
+            @Test
+            void saveAllNewStudentsInvalidatesCachedQueryResults(){
+                tx.executeWithoutResult(s -> studentRepository.findStudentByEmail(NEW_EMAIL));   // caches "no result"
+                studentRepository.saveAll(List.of(new Student("Alex", NEW_EMAIL, LocalDate.of(2001, Month.JANUARY, 18))));
+                assertThat(tx.execute(s -> studentRepository.findStudentByEmail(NEW_EMAIL))).isPresent();
+            }
+        }
@@ -0,0 +1,643 @@
+/* How many requests can the student API handle AT THE SAME TIME?
+    * Default Spring Boot (Spring MVC + Tomcat) = THREAD PER REQUEST
+        - each request gets 1 Tomcat thread (platform thread = real OS thread, ~1MB stack) from a pool of 200 (server.tomcat.threads.max)
+        - StudentController -> StudentService -> StudentRepository -> JDBC is BLOCKING -> the thread just sits there while Postgres works
+        - request 201 waits in a queue even if the CPU is idle -> the thread pool is the limit, not the CPU or the db
+    * Each LVL below is a different way to stop wasting threads on waiting
+
+--------------------------------------- LVL 1 - Virtual Threads (opt-in profile `virtual`) ---------------------------------------
+    * Java 21 virtual threads = super cheap threads managed by the JVM (~few KB each). When one blocks on JDBC, the JVM parks it and
+      runs another one on the same OS thread -> can have 10,000s of them
+    * Spring Boot 3.2+: 1 property -> Tomcat runs every request on a new virtual thread (+ @Async, scheduling, etc)
+        -> SAME blocking code (Controller/Service/Repository dont change at all), just a different kind of thread underneath
+    * !New bottleneck = the DB CONNECTION POOL (HikariCP, default 10 connections)
+        - 5,000 virtual threads all want 1 of 10 connections -> 4,990 wait inside Hikari -> after connection-timeout (30s default) they all fail at once
+        - Fix: 1) size the pool for what Postgres can actually do (NOT for the number of threads). rule of thumb: ~ (cpu cores of the db * 2) + disks
+               2) short connection-timeout -> fail fast instead of piling up
+               3) BULKHEAD: a Semaphore in front that only lets N requests into the student stack at a time -> the rest get 503 right away
+    * Opt-in: only when run with --spring.profiles.active=virtual -> default stays thread per request                            */
+
+    // 1) application-virtual.properties (only loaded with the `virtual` profile)
+        spring.threads.virtual.enabled=true                                             //! Tomcat + @Async + @Scheduled use virtual threads (needs Java 21+)
+        spring.datasource.hikari.maximum-pool-size=20                                   //! connections Postgres can handle well, not "as many as threads"
+        spring.datasource.hikari.connection-timeout=2000                                //! wait max 2s for a connection, then fail (default 30s)
+        student.bulkhead.max-concurrent=200                                             //! max requests inside the student stack at once (~10x the pool -> keeps the pool busy without a huge queue)
+        student.bulkhead.wait-ms=50                                                     //! how long a request waits for a permit before getting 503
+
+    // 2) Bulkhead Filter.......................................................... MainPackage/StudentPackage/StudentBulkheadFilter.java
+        @Component
+        @Profile("virtual")                                                             //! @Profile -> this bean only exists when the `virtual` profile is on
+        public class StudentBulkheadFilter extends OncePerRequestFilter {               //! OncePerRequestFilter -> runs once before every request reaches the controller
+            private final Semaphore permits;                                            //! Semaphore = N permits. acquire() takes 1, release() gives it back. Works great with virtual threads (parks, doesnt block an OS thread)
+            private final long waitMs;
+
+            @Autowired
+            public StudentBulkheadFilter(@Value("${student.bulkhead.max-concurrent}") int maxConcurrent,
+                                         @Value("${student.bulkhead.wait-ms}") long waitMs){
+                this.permits = new Semaphore(maxConcurrent);
+                this.waitMs = waitMs;
+            }
+
+            @Override
+            protected boolean shouldNotFilter(HttpServletRequest request){
+                return !request.getRequestURI().startsWith("/api/v1/student");          // only guard the student endpoints (not /actuator etc)
+            }
+
+            @Override
+            protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+                    throws ServletException, IOException {
+                boolean acquired;
+                try {
+                    acquired = permits.tryAcquire(waitMs, TimeUnit.MILLISECONDS);       // 1) try to get in (wait a little)
+                } catch (InterruptedException e){
+                    Thread.currentThread().interrupt();
+                    acquired = false;
+                }
+                if (!acquired){
+                    response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value(), "Too many requests, try again");   // 2) full -> 503 right away (client/load balancer can retry elsewhere)
+                    return;
+                }
+                try {
+                    chain.doFilter(request, response);                                  // 3) run Controller -> Service -> Repository
+                } finally {
+                    permits.release();                                                  // 4) ALWAYS give the permit back (even on exceptions)
+                }
+            }
+        }
+
+    // 3) Run it
+        java -jar app.jar                                                               // thread per request (200 platform threads)
+        java -jar app.jar --spring.profiles.active=virtual                              // virtual threads + sized pool + bulkhead
+
+    // !Pinning: a virtual thread inside a `synchronized` block cant be parked (Java 21-23) -> it holds its OS thread while blocked
+    //  - Postgres JDBC driver 42.6+ and HikariCP 5+ use ReentrantLock -> fine. Check with: -Djdk.tracePinnedThreads=short
+    //  - Java 24+ doesnt pin on synchronized anymore
+
+
+/*  Comparing the 2 modes (same machine, same db, same data)
+    * Load tool: oha (or wrk2) at a FIXED rate so latency isnt hidden by the tool slowing down
+        oha -z 60s -c 2000 -q 5000 --latency-correction "http://localhost:8080/api/v1/student?limit=50"
+        oha -z 60s -c 2000 -q 5000 --latency-correction -m POST -H "Content-Type: application/json" -d '{"name":"x","email":"...","dob":"2000-01-01"}' http://localhost:8080/api/v1/student
+    * Run each mode 3x after a 30s warm up, keep the median. Write down:
+        | mode                  | concurrency | req/s | p50 | p99 | errors (503 / timeouts) | db pool (hikaricp.connections.pending) |
+        | thread per request    | 2000        |       |     |     |                         |                                        |
+        | virtual (`virtual`)   | 2000        |       |     |     |                         |                                        |
+    * What to expect:
+        - Short db queries (pool never empty) -> about the same req/s, both limited by Postgres
+        - Slow I/O (slow queries, calls to other services) -> thread per request tops out at 200 in flight and p99 climbs from queueing in Tomcat,
+          virtual threads keep going until the DB POOL / bulkhead is the limit -> then extra load becomes fast 503s instead of a slow p99
+        - Virtual threads dont make a single request faster, they just let more of them wait at the same time                                           */
+
+
+/*--------------------------------------- LVL 2 - Reactive Student API (WebFlux + R2DBC) ---------------------------------------
+    * Completely different stack, same endpoints (GET / POST / DELETE on api/v1/student):
+        Spring MVC + JPA/JDBC (blocking)            Spring WebFlux + R2DBC (non-blocking)
+        Tomcat, 1 thread per request                Netty, a few event loop threads (1 per core) for ALL requests
+        JpaRepository<Student, Long>                ReactiveCrudRepository<Student, Long>
+        List<Student>, Optional<Student>            Flux<Student> (0..N), Mono<Student> (0..1)
+    * Nothing waits: the query is sent -> the thread goes off to serve other requests -> when rows arrive, the next step runs
+    * BACKPRESSURE: Flux only pulls more rows from the db when the client has read the ones already sent
+        -> slow client = db reads slow down too, nothing piles up in memory (GET with Accept: application/x-ndjson streams 1 Student per line)
+    * !Has to be its OWN app: if spring-boot-starter-web and spring-boot-starter-webflux are both on the classpath, Spring Boot picks MVC
+    * !No JPA here -> no @Entity, no lazy loading, no dirty checking, no @SequenceGenerator. The db makes the id (DEFAULT nextval(...))
+    * !NEVER call blocking code (JDBC, Thread.sleep, .block()) inside a reactive chain -> it freezes an event loop thread = freezes 1/N of the server  */
+
+    // 0) pom.xml (reactive app)
+        <dependency>
+            <groupId>org.springframework.boot</groupId>
+            <artifactId>spring-boot-starter-webflux</artifactId>                        <!-- instead of spring-boot-starter-web -->
+        </dependency>
+        <dependency>
+            <groupId>org.springframework.boot</groupId>
+            <artifactId>spring-boot-starter-data-r2dbc</artifactId>                     <!-- instead of spring-boot-starter-data-jpa -->
+        </dependency>
+        <dependency>
+            <groupId>org.postgresql</groupId>
+            <artifactId>r2dbc-postgresql</artifactId>                                   <!-- non-blocking Postgres driver -->
+            <scope>runtime</scope>
+        </dependency>
+        <dependency>
+            <groupId>io.r2dbc</groupId>
+            <artifactId>r2dbc-h2</artifactId>                                           <!-- embedded H2 for tests -->
+            <scope>test</scope>
+        </dependency>
+        <dependency>
+            <groupId>io.projectreactor</groupId>
+            <artifactId>reactor-test</artifactId>                                       <!-- StepVerifier -->
+            <scope>test</scope>
+        </dependency>
+
+    // 1) application.properties + schema.sql (no ddl-auto in R2DBC -> Spring runs schema.sql at startup)
+        spring.r2dbc.url=r2dbc:postgresql://localhost:5432/student
+        spring.r2dbc.username=<dbusername>
+        spring.r2dbc.password=<dbpassword>
+        spring.r2dbc.pool.max-size=20
+        spring.sql.init.mode=always
+
+        -- src/main/resources/schema.sql
+        CREATE SEQUENCE IF NOT EXISTS student_sequence;
+        CREATE TABLE IF NOT EXISTS student (
+            id    BIGINT PRIMARY KEY DEFAULT nextval('student_sequence'),               -- db makes the id
+            name  VARCHAR(255),
+            email VARCHAR(255) NOT NULL CONSTRAINT student_email_unique UNIQUE,
+            dob   DATE
+        );
+
+    // 2) Model.................................................................... MainPackage/StudentPackage/Student.java
+        @Table("student")                                                               //! org.springframework.data.relational.core.mapping.Table (NOT jakarta.persistence)
+        public class Student {
+            @Id                                                                         //! org.springframework.data.annotation.Id. null id -> INSERT and the db fills it in, non null -> UPDATE
+            private Long id;
+            private String name;
+            private String email;
+            private LocalDate dob;
+            @Transient                                                                  //! org.springframework.data.annotation.Transient -> not a column
+            private Integer age;
+            // Constructors, Getters and Setters (getAge() uses Period.between like before)
+        }
+
+    // 3) Repository............................................................... MainPackage/StudentPackage/StudentRepository.java
+        @Repository
+        public interface StudentRepository extends ReactiveCrudRepository<Student, Long> {    //! every method returns Flux/Mono. findAll() -> Flux<Student>
+            @Query("SELECT * FROM student WHERE email = :email")                       //! R2DBC @Query is plain SQL (not JPQL)
+            Mono<Student> findStudentByEmail(String email);
+
+            @Modifying
+            @Query("DELETE FROM student WHERE id = :id")
+            Mono<Integer> deleteStudentById(Long id);                                   //! 1 statement, row count like Tutorial 4 LVL 3
+        }
+
+    // 4) Service.................................................................. MainPackage/StudentPackage/StudentService.java
+        @Service
+        public class StudentService {
+            private final StudentRepository studentRepository;
+            @Autowired
+            public StudentService(StudentRepository studentRepository){
+                this.studentRepository = studentRepository;
+            }
+
+            public Flux<Student> getStudents(){
+                return studentRepository.findAll();                                     //! nothing runs yet! A Flux is a recipe -> the query runs when WebFlux subscribes to it
+            }
+
+            public Mono<Student> registerStudent(Student student){
+                student.setId(null);                                                    // always an INSERT
+                return studentRepository.save(student)
+                        .onErrorMap(DataIntegrityViolationException.class,             //! unique index does the email check (Tutorial 4 LVL 2) -> 409
+                                e -> new ResponseStatusException(HttpStatus.CONFLICT, "Email exists!"));
+            }
+
+            public Mono<Void> deleteStudent(Long studentId){
+                return studentRepository.deleteStudentById(studentId)
+                        .flatMap(deleted -> deleted == 0
+                                ? Mono.error(new IllegalStateException("Student Id "+studentId+" does not exist!"))
+                                : Mono.empty());
+            }
+        }
+
+    // 5) Controller............................................................... MainPackage/StudentPackage/StudentController.java
+        @RestController                                                                 //! same annotations as Spring MVC! WebFlux just understands Flux/Mono return types
+        @RequestMapping(path = "api/v1/student")
+        public class StudentController {
+            // Injecting Service Dependency & Constructor...
+
+            @GetMapping(produces = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.APPLICATION_JSON_VALUE})
+            public Flux<Student> getStudents(){                                         //! Accept: application/x-ndjson -> each Student is written (and flushed) as soon as it arrives, at the speed the client reads
+                return studentService.getStudents();
+            }
+
+            @PostMapping
+            public Mono<Student> registerStudent(@RequestBody Student student){         //! returns the saved Student (with its new id)
+                return studentService.registerStudent(student);
+            }
+
+            @DeleteMapping(path = "{studentId}")
+            public Mono<Void> deleteStudent(@PathVariable("studentId") Long studentId){
+                return studentService.deleteStudent(studentId);
+            }
+        }
+
+    // 6) Tests (embedded H2 instead of Postgres).................................. src/test/java/MainPackage/StudentPackage/StudentControllerTest.java
+        // src/test/resources/application.properties
+            spring.r2dbc.url=r2dbc:h2:mem:///studentdb;DB_CLOSE_DELAY=-1               //! in-memory H2, schema.sql runs on it too (H2 understands that SQL)
+
+        @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+        @AutoConfigureWebTestClient
+        class StudentControllerTest {
+            @Autowired
+            private WebTestClient webTestClient;                                        //! WebTestClient = non-blocking test HTTP client for WebFlux
+
+            @Test
+            void registerThenListThenDelete(){
+                Student tom = webTestClient.post().uri("/api/v1/student")
+                        .bodyValue(new Student("Tom", "Tommy@gmail.com", LocalDate.of(2000, Month.JANUARY, 5)))
+                        .exchange()
+                        .expectStatus().isOk()
+                        .expectBody(Student.class).returnResult().getResponseBody();
+
+                webTestClient.post().uri("/api/v1/student")                             // same email again -> 409
+                        .bodyValue(new Student("Tom2", "Tommy@gmail.com", LocalDate.of(2000, Month.JANUARY, 5)))
+                        .exchange()
+                        .expectStatus().isEqualTo(HttpStatus.CONFLICT);
+
+                Flux<Student> students = webTestClient.get().uri("/api/v1/student")
+                        .accept(MediaType.APPLICATION_NDJSON)
+                        .exchange()
+                        .expectStatus().isOk()
+                        .returnResult(Student.class).getResponseBody();
+                StepVerifier.create(students)                                           //! StepVerifier -> check what a Flux emits, step by step
+                        .expectNextMatches(s -> s.getEmail().equals("Tommy@gmail.com"))
+                        .verifyComplete();
+
+                webTestClient.delete().uri("/api/v1/student/{id}", tom.getId())
+                        .exchange()
+                        .expectStatus().isOk();
+            }
+        }
+
+
+/*--------------------------------------- LVL 3 - Read Replica Routing (reads -> replica, writes -> primary) ---------------------------------------
+    * 90% of the load is reads, all on 1 Postgres (spring.datasource.url). A read replica = copy of the primary that Postgres keeps up to date (streaming replication)
+        -> send reads to the replica(s), writes to the primary -> reads scale out, the primary only does writes
+    * HOW we decide: the transaction says it
+        @Transactional(readOnly = true)  (getStudents, getStudent, findStudentByEmail, Spring Data's own findById/findAll...)  -> REPLICA
+        @Transactional / no readOnly      (registerStudent, deleteStudent, updateStudent, ...)                                  -> PRIMARY
+    * AbstractRoutingDataSource = a DataSource that picks 1 of several real DataSources for each connection
+      + LazyConnectionDataSourceProxy -> the real connection is only taken at the 1st SQL, AFTER Spring has marked the transaction readOnly
+        (without it, JpaTransactionManager grabs the connection before readOnly is set -> everything goes to the primary)
+    * REPLICATION LAG: the replica is usually a few ms behind ->
+        POST a Student -> GET it right away -> the replica may not have it yet -> "where did my Student go?"
+        READ-YOUR-WRITES: after a write, the client gets a cookie `student-pin` for student.routing.pin-seconds -> while it has it, its reads go to the primary too
+        (cookie -> works across app instances, nothing stored on the server)                                                              */
+
+    // 1) application.properties
+        spring.datasource.primary.url=jdbc:postgresql://primary:5432/student
+        spring.datasource.primary.username=<dbusername>
+        spring.datasource.primary.password=<dbpassword>
+        spring.datasource.replica.url=jdbc:postgresql://replica:5432/student
+        spring.datasource.replica.username=<readonlyuser>                              //! read only db user on the replica -> a routing bug fails loudly instead of writing to the wrong place
+        spring.datasource.replica.password=<dbpassword>
+        student.routing.pin-seconds=5                                                   //! a bit longer than the usual replication lag
+        // !No spring.datasource.replica.url -> no routing at all (config below is off), spring.datasource.url works like before
+
+    // 2) Routing DataSource....................................................... MainPackage/StudentPackage/ReadWriteRoutingDataSource.java
+        public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+            public enum Route { PRIMARY, REPLICA }
+
+            private static final ThreadLocal<Boolean> PINNED = ThreadLocal.withInitial(() -> false);   //! set per request by the filter below
+
+            public static void pinToPrimary(boolean pinned){ PINNED.set(pinned); }
+            public static void clearPin(){ PINNED.remove(); }
+
+            @Override
+            protected Object determineCurrentLookupKey(){                               //! called every time a connection is needed
+                boolean readOnly = TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+                return (readOnly && !PINNED.get()) ? Route.REPLICA : Route.PRIMARY;     //! anything not clearly a read -> PRIMARY (safe default)
+            }
+        }
+
+    // 3) DataSource Config........................................................ MainPackage/StudentPackage/DataSourceRoutingConfig.java
+        @Configuration
+        @ConditionalOnProperty(name = "spring.datasource.replica.url")                 //! ONLY when a replica is configured. Otherwise (dev, tests, JMH, the load harness, native IT
+        public class DataSourceRoutingConfig {                                          //  that only set spring.datasource.url) Boot's normal single DataSource is used -> 1 db, not 2
+            @Bean
+            @ConfigurationProperties("spring.datasource.primary")
+            public DataSourceProperties primaryDataSourceProperties(){ return new DataSourceProperties(); }
+
+            @Bean
+            @ConfigurationProperties("spring.datasource.replica")
+            public DataSourceProperties replicaDataSourceProperties(){ return new DataSourceProperties(); }
+
+            @Bean
+            @ConfigurationProperties("spring.datasource.primary.hikari")               //! each side has its own Hikari pool + pool settings
+            public HikariDataSource primaryDataSource(@Qualifier("primaryDataSourceProperties") DataSourceProperties properties){
+                return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+            }
+
+            @Bean
+            @ConfigurationProperties("spring.datasource.replica.hikari")
+            public HikariDataSource replicaDataSource(@Qualifier("replicaDataSourceProperties") DataSourceProperties properties){
+                return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+            }
+
+            @Bean
+            @Primary                                                                    //! THIS is the DataSource JPA/Hibernate/JdbcTemplate get injected with
+            public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primary,
+                                         @Qualifier("replicaDataSource") DataSource replica){
+                ReadWriteRoutingDataSource routing = new ReadWriteRoutingDataSource();
+                routing.setTargetDataSources(Map.of(
+                        ReadWriteRoutingDataSource.Route.PRIMARY, primary,
+                        ReadWriteRoutingDataSource.Route.REPLICA, replica));
+                routing.setDefaultTargetDataSource(primary);
+                routing.afterPropertiesSet();
+                return new LazyConnectionDataSourceProxy(routing);                      //! wait for the 1st SQL before picking (see above)
+            }
+        }
+
+    // 4) Read-Your-Writes Filter.................................................. MainPackage/StudentPackage/ReadYourWritesFilter.java
+        @Component
+        public class ReadYourWritesFilter extends OncePerRequestFilter {
+            public static final String PIN_COOKIE = "student-pin";
+            private final int pinSeconds;
+
+            @Autowired
+            public ReadYourWritesFilter(@Value("${student.routing.pin-seconds}") int pinSeconds){
+                this.pinSeconds = pinSeconds;
+            }
+
+            @Override
+            protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+                    throws ServletException, IOException {
+                boolean write = !HttpMethod.GET.matches(request.getMethod()) && !HttpMethod.HEAD.matches(request.getMethod());
+                if (write){
+                    Cookie pin = new Cookie(PIN_COOKIE, "1");                           //! set BEFORE the controller runs (headers cant be added once the body is written)
+                    pin.setMaxAge(pinSeconds);                                          //! browser/client drops it after pinSeconds -> reads go back to the replica
+                    pin.setPath("/api/v1/student");
+                    pin.setHttpOnly(true);
+                    response.addCookie(pin);
+                }
+                boolean pinned = write || WebUtils.getCookie(request, PIN_COOKIE) != null;
+                ReadWriteRoutingDataSource.pinToPrimary(pinned);
+                try {
+                    chain.doFilter(request, response);
+                } finally {
+                    ReadWriteRoutingDataSource.clearPin();                              //! threads are reused -> always clear
+                }
+            }
+        }
+
+    // 5) Service (just make the reads readOnly -> they route themselves)
+        @Service
+        public class StudentService {
+            @Transactional(readOnly = true) public StudentPage getStudents(...){...}    // -> REPLICA
+            @Transactional(readOnly = true) public Optional<Student> getStudent(...){...}
+            @Transactional(readOnly = true) public Optional<Student> findStudentByEmail(...){...}
+            @Transactional public void deleteStudent(...){...}                          // -> PRIMARY
+            public void registerStudent(...){...}                                       // saveAndFlush -> Spring Data's save is @Transactional (not readOnly) -> PRIMARY
+        }
+        // !Slow query log (Tutorial 7 LVL 2): its BeanPostProcessor now only wraps the bean named "dataSource" (this @Primary routing one) ->
+        //  every statement is logged once, not once more for the Hikari pool underneath
+        // !The cache (Tutorial 5) is filled from whatever db served the read. Evictions happen after the PRIMARY commits, so a read right after
+        //  can re-cache the replica's OLD row for up to 1 TTL. With replicas, keep student.cache.ttl short (or only fill the cache on pinned/primary reads)
+
+    // 6) Test with 2 embedded H2 dbs (they are NOT replicated -> we can SEE which one was used)... src/test/java/MainPackage/StudentPackage/ReadWriteRoutingTest.java
+        @SpringBootTest(properties = {
+                "spring.datasource.primary.url=jdbc:h2:mem:primary;DB_CLOSE_DELAY=-1",
+                "spring.datasource.replica.url=jdbc:h2:mem:replica;DB_CLOSE_DELAY=-1",
+                "spring.jpa.hibernate.ddl-auto=create-drop",                            // builds the schema on the PRIMARY (no transaction -> PRIMARY)
+                "student.seed.enabled=false"})                                          //! false = no Tom + Alex either (Tutorial 4 LVL 5) -> primary starts empty
+        class ReadWriteRoutingTest {
+            @Autowired StudentService studentService;
+            @Autowired @Qualifier("replicaDataSource") DataSource replica;
+
+            @BeforeEach
+            void createReplicaSchema(){
+                JdbcTemplate replicaJdbc = new JdbcTemplate(replica);
+                replicaJdbc.execute("DROP TABLE IF EXISTS student");
+                replicaJdbc.execute("CREATE TABLE student (id BIGINT PRIMARY KEY, name VARCHAR(255), email VARCHAR(255), dob DATE, version BIGINT)");
+                replicaJdbc.update("INSERT INTO student VALUES (1000, 'OnlyOnReplica', 'replica@gmail.com', DATE '2000-01-01', 0)");
+            }
+
+            @AfterEach
+            void clearPin(){
+                ReadWriteRoutingDataSource.clearPin();
+            }
+
+            @Test
+            void readsGoToTheReplica(){
+                assertThat(studentService.findStudentByEmail("replica@gmail.com")).isPresent();   // only the replica has this row
+            }
+
+            @Test
+            void writesGoToThePrimary(){
+                studentService.registerStudent(new Student("Wes", "routing-write@gmail.com", LocalDate.of(2000, Month.JANUARY, 5)));
+                assertThat(studentService.findStudentByEmail("routing-write@gmail.com")).isEmpty();   // read -> replica -> never got it (no replication in the test)
+            }
+
+            @Test
+            void pinnedReadsGoToThePrimary(){
+                studentService.registerStudent(new Student("Pia", "routing-pinned@gmail.com", LocalDate.of(2001, Month.JANUARY, 18)));
+                ReadWriteRoutingDataSource.pinToPrimary(true);                          // what the filter does after a write
+                assertThat(studentService.findStudentByEmail("routing-pinned@gmail.com")).isPresent();
+            }
+        }
+        // !Each test uses its own email that nothing else seeds or registers -> no 409 on the primary, and the StudentCache (Tutorial 5)
+        //  cant answer from memory and hide which db was used
+
+
+/*--------------------------------------- LVL 4 - Change Feed with Server-Sent Events (GET api/v1/student/changes) ---------------------------------------
+    * Other services POLL GET api/v1/student to see what changed -> most of our read load is "did anything change? no."
+    * PUSH instead: client opens 1 long HTTP connection, we send an event every time a Student is created/updated/deleted
+    * SSE (Server-Sent Events) = plain HTTP, Content-Type: text/event-stream, server writes text blocks like:
+        id: 18f3c2a1b00-1042                                                            (epoch of this boot + seq, see below)
+        event: UPDATED
+        data: {"seq":1042,"type":"UPDATED","studentId":7}
+      browsers (EventSource) and most HTTP clients reconnect by themselves and send header  Last-Event-ID: 18f3c2a1b00-1042
+    * Events are published AFTER COMMIT from StudentService (same afterCommit pattern as StudentCache) -> never announce something that rolled back
+    * RING BUFFER of the last N events (fixed size array, oldest gets overwritten):
+        - reconnect with Last-Event-ID -> replay what was missed from the ring, no table read
+        - missed more than the ring holds -> send 1 `RESET` event -> client re-reads the table once, then continues live
+        - seq starts at 1 again after a restart -> the id has an EPOCH (like StudentVersions in Tutorial 5) -> id from another boot = RESET, never a wrong replay
+    * SLOW CONSUMERS: each client has a small bounded queue + its own virtual thread that writes to its socket
+        - queue full (client isnt reading) -> we close that client's stream. It reconnects with Last-Event-ID and catches up from the ring
+        - 1 slow client never slows down the publisher or the other clients, and memory per client is capped                        */
+
+    // 1) application.properties
+        student.changes.ring-size=100000                                                //! last 100k events kept (~ a few MB) -> how far back a reconnect can resume
+        student.changes.client-queue=1000                                               //! events waiting per client before we drop it
+
+    // 2) Event.................................................................... MainPackage/StudentPackage/StudentChange.java
+        public record StudentChange(long seq, Type type, long studentId) {             //! just the id -> clients GET /api/v1/student/{id} if they need the data (small events, no stale copies)
+            public enum Type { CREATED, UPDATED, DELETED, RESET }
+        }
+
+    // 3) Change Feed.............................................................. MainPackage/StudentPackage/StudentChangeFeed.java
+        @Component
+        public class StudentChangeFeed {
+            private final StudentChange[] ring;                                         //! the ring buffer
+            private final String epoch = Long.toHexString(System.currentTimeMillis()); //! new prefix on every restart (same trick as StudentVersions, Tutorial 5 LVL 2)
+            private long nextSeq = 1;                                                   //! seq of the NEXT event (guarded by `this`)
+            private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+            private final int clientQueue;
+
+            @Autowired
+            public StudentChangeFeed(@Value("${student.changes.ring-size}") int ringSize,
+                                     @Value("${student.changes.client-queue}") int clientQueue){
+                this.ring = new StudentChange[ringSize];
+                this.clientQueue = clientQueue;
+            }
+
+            public void publishAfterCommit(StudentChange.Type type, long studentId){   //! call from register/update/delete in StudentService
+                Runnable publish = () -> publish(type, studentId);
+                if (TransactionSynchronizationManager.isSynchronizationActive()){
+                    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                        @Override public void afterCommit(){ publish.run(); }
+                    });
+                } else {
+                    publish.run();
+                }
+            }
+
+            private void publish(StudentChange.Type type, long studentId){
+                StudentChange change;
+                synchronized (this){                                                    // small critical section: give out seq + store in ring + hand to every client
+                    change = new StudentChange(nextSeq, type, studentId);
+                    ring[(int) (nextSeq % ring.length)] = change;
+                    nextSeq++;
+                    subscribers.forEach(s -> s.offer(change));                          //! INSIDE the lock -> every client gets N before N+1, and a client that subscribes
+                }                                                                       //  right now gets N either from the ring replay or live, never both. offer() never blocks or touches the emitter -> cheap
+            }
+
+            public SseEmitter subscribe(String lastEventId){
+                SseEmitter emitter = new SseEmitter(0L);                                //! 0 = no timeout (the connection stays open)
+                Subscriber subscriber = new Subscriber(emitter, new ArrayBlockingQueue<>(clientQueue));
+                List<StudentChange> replay = new ArrayList<>();
+                synchronized (this){                                                    //! register + snapshot the ring in 1 step -> no event is missed or sent twice
+                    subscribers.add(subscriber);
+                    if (lastEventId != null){
+                        Long lastSeq = seqFromThisBoot(lastEventId);
+                        long oldest = Math.max(1, nextSeq - ring.length);
+                        if (lastSeq == null || lastSeq + 1 < oldest || lastSeq >= nextSeq){
+                            replay.add(new StudentChange(nextSeq - 1, StudentChange.Type.RESET, 0));   // other boot / too far behind / from the future -> re-read the table
+                        } else {
+                            for (long seq = lastSeq + 1; seq < nextSeq; seq++){
+                                replay.add(ring[(int) (seq % ring.length)]);
+                            }
+                        }
+                    }
+                }
+                emitter.onCompletion(subscriber::stop);                                 // client went away -> stop queueing for it + wake its sender thread
+                emitter.onError(e -> subscriber.stop());
+                Thread.ofVirtual().name("sse-student-changes").start(() -> subscriber.run(replay));   //! 1 cheap virtual thread per client does the (blocking) socket writes
+                return emitter;
+            }
+
+            private Long seqFromThisBoot(String lastEventId){                          // "18f3c2a1b00-1040" -> 1040. Other epoch or garbage -> null
+                int dash = lastEventId.lastIndexOf('-');
+                if (dash < 0 || !lastEventId.substring(0, dash).equals(epoch)) return null;
+                try {
+                    return Long.parseLong(lastEventId.substring(dash + 1));
+                } catch (NumberFormatException e){
+                    return null;
+                }
+            }
+
+            private static final StudentChange STOP = new StudentChange(-1, StudentChange.Type.RESET, -1);   //! poison marker: "sender thread, finish this client" (compared by ==)
+
+            private final class Subscriber {
+                final SseEmitter emitter;                                               //! ONLY the subscriber's own sender thread calls send/complete on it
+                final BlockingQueue<StudentChange> queue;                               //  (Spring 6.1 locks the emitter in send AND complete -> a publisher calling
+                volatile boolean closed;                                                //   complete() would wait behind a send() stuck on a full socket)
+
+                Subscriber(SseEmitter emitter, BlockingQueue<StudentChange> queue){
+                    this.emitter = emitter;
+                    this.queue = queue;
+                }
+
+                void offer(StudentChange change){                                      // called under the publish lock -> must NEVER block or touch the emitter
+                    if (closed) return;
+                    if (!queue.offer(change)){                                          //! client too slow -> drop it (it resumes from the ring with Last-Event-ID)
+                        stop();
+                    }
+                }
+
+                void stop(){                                                            // from the publisher or the emitter callbacks: just flag + poison, no I/O
+                    if (closed) return;
+                    closed = true;
+                    subscribers.remove(this);
+                    queue.clear();                                                      // make room -> STOP always fits
+                    queue.offer(STOP);
+                }
+
+                void run(List<StudentChange> replay){
+                    try {
+                        for (StudentChange change : replay) send(change);              // 1) what it missed
+                        while (true){
+                            StudentChange change = queue.poll(15, TimeUnit.SECONDS);    // 2) live events
+                            if (change == STOP){
+                                break;                                                  // stopped (too slow / client went away)
+                            } else if (change == null){
+                                emitter.send(SseEmitter.event().comment("keep-alive"));  //! nothing for 15s -> a comment line keeps proxies from closing the connection + finds dead clients
+                            } else {
+                                send(change);
+                            }
+                        }
+                        emitter.complete();                                             //! completed HERE, on the sender thread, never under the publish lock
+                    } catch (IOException | IllegalStateException e){
+                        emitter.completeWithError(e);                                   // client disconnected
+                    } catch (InterruptedException e){
+                        Thread.currentThread().interrupt();
+                        emitter.complete();
+                    } finally {
+                        closed = true;
+                        subscribers.remove(this);
+                    }
+                }
+
+                void send(StudentChange change) throws IOException {
+                    emitter.send(SseEmitter.event()
+                            .id(epoch + "-" + change.seq())                             //! what the client sends back as Last-Event-ID
+                            .name(change.type().name())
+                            .data(change, MediaType.APPLICATION_JSON));
+                }
+            }
+        }
+
+    // 4) Repository............................................................... MainPackage/StudentPackage/StudentRepository.java
+        @Repository
+        public interface StudentRepository extends JpaRepository<Student, Long> {
+            // deleteStudentsByIds (Tutorial 4 LVL 3) only returns a COUNT -> cant tell which of the requested ids existed
+
+            @Lock(LockModeType.PESSIMISTIC_WRITE)                                       //! SELECT ... FOR UPDATE -> these rows stay ours until the DELETE in the same transaction
+            @Query("SELECT s.id FROM Student s WHERE s.id IN ?1")
+            List<Long> lockExistingIds(Collection<Long> ids);
+        }
+        // (Postgres alone could do `DELETE ... RETURNING id` in 1 statement. H2, used by the tests + benchmarks, cant -> select + delete)
+
+    // 5) Service.................................................................. MainPackage/StudentPackage/StudentService.java
+        @Service
+        public class StudentService {
+            // Injecting Repository + StudentChangeFeed & Constructor...
+
+            public void registerStudent(Student student){
+                // saveAndFlush + catch conflict...
+                studentChangeFeed.publishAfterCommit(StudentChange.Type.CREATED, student.getId());
+            }
+
+            @Transactional
+            public int deleteStudents(List<Long> studentIds){
+                // MAX_DELETE_IDS check (Tutorial 4 LVL 3)...
+                int deleted = 0;
+                for (int from = 0; from < studentIds.size(); from += DELETE_CHUNK_SIZE){
+                    List<Long> chunk = studentIds.subList(from, Math.min(from + DELETE_CHUNK_SIZE, studentIds.size()));
+                    List<Long> existing = studentRepository.lockExistingIds(chunk);     // 1) which ids really exist (locked -> nobody else deletes them first)
+                    if (existing.isEmpty()) continue;
+                    deleted += studentRepository.deleteStudentsByIds(existing);        // 2) delete exactly those
+                    existing.forEach(id -> {
+                        studentCache.evictAfterCommit(id);
+                        studentChangeFeed.publishAfterCommit(StudentChange.Type.DELETED, id);   //! only ids that were really deleted -> no DELETED events for ids that never existed
+                    });
+                }
+                return deleted;
+            }
+            // deleteStudent -> DELETED only when deleteStudentById returned 1, updateStudent -> UPDATED
+        }
+
+    // 6) Controller............................................................... MainPackage/StudentPackage/StudentController.java
+        @RestController
+        @RequestMapping(path = "api/v1/student")
+        public class StudentController {
+            // Injecting Service + StudentChangeFeed & Constructor...
+
+            @GetMapping(path = "changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE) //! GET api/v1/student/changes
+            public SseEmitter changes(@RequestHeader(value = "Last-Event-ID", required = false) String lastEventId){   //! @RequestHeader -> reconnecting clients resume from here
+                return studentChangeFeed.subscribe(lastEventId);
+            }
+        }
+
+    // Try it:
+        curl -N localhost:8080/api/v1/student/changes                                   // -N = dont buffer, print events as they come
+        curl -N -H 'Last-Event-ID: 18f3c2a1b00-1040' localhost:8080/api/v1/student/changes   // resume after event 1040 (if this instance has NOT restarted since, else RESET)
+        // !Each open SSE connection holds 1 Tomcat connection (server.tomcat.max-connections, default 8192) + 1 async request. With
+        //  spring.threads.virtual.enabled (LVL 1) there is no platform thread per client
+        // !The ring is per instance -> behind a load balancer, a client that reconnects to ANOTHER instance gets RESET (epochs dont match). Use sticky sessions for /changes
@@ -0,0 +1,705 @@
+/* Measuring the student API (what is slow, and is my change faster or slower?)
+    * Before this, the only visibility is spring.jpa.show-sql=true:
+        - prints EVERY statement to stdout, synchronously, on the request thread -> the logging itself costs throughput
+        - no timings, no per-endpoint view, no way to spot an N+1 (1 query for the list + 1 more query per row)
+    * Each LVL below adds 1 kind of measurement
+
+--------------------------------------- LVL 1 - Per-Layer Timers + SQL Statement Count per Request ---------------------------------------
+    * Timers (Micrometer -> /actuator/metrics, or Prometheus) for each layer, ALL tagged with the endpoint that called them:
+        http.server.requests                -> Spring Boot already times every endpoint (tag uri="/api/v1/student/{studentId}")
+        student.layer{layer=controller}     -> each StudentController method        (our aspect below)
+        student.layer{layer=service}        -> each StudentService method           (our aspect below)
+        student.layer{layer=repository}     -> each StudentRepository method, incl. the custom @Query findStudentByEmail (our aspect below)
+        student.sql.statements              -> how many SQL statements 1 request ran (histogram)
+    * STATEMENT BUDGET: a request that runs more than student.sql.budget statements gets logged WITH the lines of our code that ran them
+        -> N+1 shows up as "GET /api/v1/student ran 51 statements (budget 10), over budget at: {StudentService.getStudents:57=41}"
+           (call site = first line of OUR code that called the repository, the measuring classes themselves are skipped)
+    * Counting uses Hibernate's StatementInspector -> Hibernate calls it for every SQL it is about to run (cost: 1 counter++)
+      Call sites are only recorded AFTER the budget is passed -> normal requests never pay for stack walking                            */
+
+    // 0) pom.xml
+        <dependency>
+            <groupId>org.springframework.boot</groupId>
+            <artifactId>spring-boot-starter-actuator</artifactId>
+        </dependency>
+        <dependency>
+            <groupId>org.springframework.boot</groupId>
+            <artifactId>spring-boot-starter-aop</artifactId>                            <!-- for @Aspect -->
+        </dependency>
+
+    // 1) application.properties
+        spring.jpa.show-sql=false                                                       //! turn OFF the stdout flood
+        spring.jpa.properties.hibernate.format_sql=false
+        spring.jpa.properties.hibernate.session_factory.statement_inspector=MainPackage.StudentPackage.SqlStatementCounter   //! Hibernate makes this class itself (not a Spring bean)
+        management.metrics.distribution.percentiles-histogram.student.layer=true        //! histogram buckets -> p50/p99 in Prometheus
+        management.metrics.distribution.percentiles-histogram.http.server.requests=true
+        student.sql.budget=10                                                           //! more statements than this in 1 request -> warning log
+
+    // 2) Statement Counter (Hibernate StatementInspector)......................... MainPackage/StudentPackage/SqlStatementCounter.java
+        public class SqlStatementCounter implements StatementInspector {
+            private static final ThreadLocal<RequestSql> CURRENT = new ThreadLocal<>();//! ThreadLocal -> each request thread has its own counter (no locking)
+            private static final StackWalker WALKER = StackWalker.getInstance();
+            private static final Set<String> NOT_A_CALL_SITE = Set.of(                 //! our own measuring code is on the stack too (the aspect wraps every repository call) -> never report it
+                    SqlStatementCounter.class.getName(),
+                    StudentLayerTimingAspect.class.getName());
+
+            public static final class RequestSql {
+                final int budget;
+                int statements;
+                final Map<String, Integer> callSites = new LinkedHashMap<>();          // "StudentService.getStudents:57" -> times
+                RequestSql(int budget){ this.budget = budget; }
+            }
+
+            public static void begin(int budget){ CURRENT.set(new RequestSql(budget)); }
+            public static RequestSql end(){
+                RequestSql sql = CURRENT.get();
+                CURRENT.remove();                                                       //! ALWAYS remove -> threads are reused, dont leak into the next request
+                return sql;
+            }
+
+            @Override
+            public String inspect(String sql){                                          //! Hibernate calls this before running each statement
+                RequestSql current = CURRENT.get();
+                if (current != null && ++current.statements > current.budget){         // over budget -> now its worth finding out who is calling
+                    String site = WALKER.walk(frames -> frames
+                            .filter(f -> f.getClassName().startsWith("MainPackage.") && !f.getClassName().contains("$$"))   // first frame in OUR code (skip Spring proxies)
+                            .filter(f -> !NOT_A_CALL_SITE.contains(f.getClassName()))   // ...that isnt the counter or StudentLayerTimingAspect.time -> the service/controller line
+                            .findFirst()
+                            .map(f -> f.getClassName().substring(f.getClassName().lastIndexOf('.') + 1) + "." + f.getMethodName() + ":" + f.getLineNumber())
+                            .orElse("?"));
+                    current.callSites.merge(site, 1, Integer::sum);
+                }
+                return sql;                                                             //! return the SQL unchanged
+            }
+        }
+
+    // 3) Request Interceptor (start/stop counting + budget log)................... MainPackage/StudentPackage/SqlBudgetInterceptor.java
+        @Component
+        public class SqlBudgetInterceptor implements HandlerInterceptor {               //! HandlerInterceptor -> runs before/after every controller method
+            private static final Logger log = LoggerFactory.getLogger(SqlBudgetInterceptor.class);
+            private final MeterRegistry meterRegistry;
+            private final int budget;
+
+            @Autowired
+            public SqlBudgetInterceptor(MeterRegistry meterRegistry, @Value("${student.sql.budget}") int budget){
+                this.meterRegistry = meterRegistry;
+                this.budget = budget;
+            }
+
+            @Override
+            public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler){
+                SqlStatementCounter.begin(budget);
+                return true;                                                            // true = keep going to the controller
+            }
+
+            @Override
+            public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex){
+                SqlStatementCounter.RequestSql sql = SqlStatementCounter.end();
+                if (sql == null) return;
+                String endpoint = request.getMethod() + " " + request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);   //! "GET /api/v1/student/{studentId}" (pattern, not the real id -> few tag values)
+                DistributionSummary.builder("student.sql.statements")
+                        .tag("endpoint", endpoint)
+                        .publishPercentileHistogram()
+                        .register(meterRegistry)
+                        .record(sql.statements);
+                if (sql.statements > sql.budget){
+                    log.warn("{} ran {} SQL statements (budget {}), over budget at: {}", endpoint, sql.statements, sql.budget, sql.callSites);
+                }
+            }
+        }
+
+        // register it......................................................... MainPackage/StudentPackage/StudentWebConfig.java
+        @Configuration
+        public class StudentWebConfig implements WebMvcConfigurer {
+            private final SqlBudgetInterceptor sqlBudgetInterceptor;
+            // Constructor...
+            @Override
+            public void addInterceptors(InterceptorRegistry registry){
+                registry.addInterceptor(sqlBudgetInterceptor).addPathPatterns("/api/v1/student/**", "/api/v1/student");
+            }
+        }
+
+    // 4) Layer Timing Aspect...................................................... MainPackage/StudentPackage/StudentLayerTimingAspect.java
+        @Aspect                                                                         //! AOP: runs "around" every matching method without touching the Controller/Service code
+        @Component
+        public class StudentLayerTimingAspect {
+            private final MeterRegistry meterRegistry;
+            // Constructor...
+
+            @Around("within(MainPackage.StudentPackage.StudentController)")
+            public Object timeController(ProceedingJoinPoint pjp) throws Throwable {
+                return time("controller", pjp);
+            }
+
+            @Around("within(MainPackage.StudentPackage.StudentService)")
+            public Object timeService(ProceedingJoinPoint pjp) throws Throwable {
+                return time("service", pjp);
+            }
+
+            @Around("this(MainPackage.StudentPackage.StudentRepository)")             //! `this(...)` -> any call on the repository PROXY (findAll, save, our @Query findStudentByEmail...). `within` wont work, the real class is Spring's SimpleJpaRepository
+            public Object timeRepository(ProceedingJoinPoint pjp) throws Throwable {
+                return time("repository", pjp);
+            }
+
+            private Object time(String layer, ProceedingJoinPoint pjp) throws Throwable {
+                Timer.Sample sample = Timer.start(meterRegistry);
+                String outcome = "success";
+                try {
+                    return pjp.proceed();                                               //! run the real method
+                } catch (Throwable t){
+                    outcome = t.getClass().getSimpleName();
+                    throw t;
+                } finally {
+                    sample.stop(Timer.builder("student.layer")
+                            .tag("layer", layer)
+                            .tag("method", pjp.getSignature().getName())
+                            .tag("endpoint", currentEndpoint())
+                            .tag("outcome", outcome)
+                            .register(meterRegistry));
+                }
+            }
+
+            private static String currentEndpoint(){
+                if (RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attrs){   //! the HTTP request on this thread (none for CommandLineRunners etc)
+                    HttpServletRequest request = attrs.getRequest();
+                    Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+                    return request.getMethod() + " " + (pattern == null ? "unknown" : pattern);
+                }
+                return "none";
+            }
+        }
+
+    // 5) Reading it
+        GET /actuator/metrics/student.layer?tag=layer:repository&tag=method:findStudentByEmail&tag=endpoint:POST%20/api/v1/student
+        GET /actuator/metrics/student.sql.statements?tag=endpoint:GET%20/api/v1/student
+        // Spring Boot also has spring.data.repository.invocations built in (per repository method, but without the endpoint tag)
+
+
+/*--------------------------------------- LVL 2 - Sampled Slow Query Log (replaces show-sql / format_sql in production) ---------------------------------------
+    * show-sql=true + format_sql=true -> EVERY statement is pretty printed to stdout, synchronously, on the request thread
+    * Instead: wrap the DataSource with datasource-proxy -> a listener sees every statement AFTER it ran (with its time) and only logs:
+        - SLOW statements (over student.sql.slow-ms)                         -> always
+        - a random SAMPLE of the rest (student.sql.sample-rate=0.001 = 1 in 1000) -> to see what "normal" looks like
+    * Each log line has: time, SQL, bound parameters (REDACTED by default -> type + length only, no emails in the logs), rows changed, the StudentService method that called it
+    * Logging is ASYNC through a BOUNDED queue:
+        request thread -> queue.offer(entry) (never waits) -> 1 background thread writes the log
+        queue full (log is slow / log storm) -> entry is DROPPED + counted (student.sql.log.dropped) -> requests never slow down because of logging
+    * !Rows: for INSERT/UPDATE/DELETE the JDBC update count is known right after the statement runs. For SELECT the rows are still being
+      fetched at that point -> logged as rows=n/a (the layer timers from LVL 1 show the repository method + time for those)               */
+
+    // 0) pom.xml
+        <dependency>
+            <groupId>net.ttddyy</groupId>
+            <artifactId>datasource-proxy</artifactId>
+            <version>1.10</version>
+        </dependency>
+
+    // 1) application.properties
+        spring.jpa.show-sql=false
+        spring.jpa.properties.hibernate.format_sql=false
+        student.sql.slow-ms=200                                                         //! always log statements slower than 200ms
+        student.sql.sample-rate=0.001                                                   //! + 1 in 1000 of the rest
+        student.sql.redact-params=true                                                  //! false only in dev (shows real values)
+        student.sql.log-buffer=10000                                                    //! max entries waiting to be written
+
+    // 2) Properties............................................................... MainPackage/StudentPackage/SlowQueryProperties.java
+        @ConfigurationProperties(prefix = "student.sql")
+        public record SlowQueryProperties(long slowMs, double sampleRate, boolean redactParams, int logBuffer) {}
+
+    // 3) Wrapping the DataSource.................................................. MainPackage/StudentPackage/SlowQueryConfig.java
+        @Configuration
+        @EnableConfigurationProperties(SlowQueryProperties.class)
+        public class SlowQueryConfig {
+            @Bean
+            static BeanPostProcessor slowQueryDataSourceWrapper(ObjectProvider<SlowQueryLog> slowQueryLog){   //! static -> BeanPostProcessors are made before everything else
+                return new BeanPostProcessor() {
+                    @Override
+                    public Object postProcessAfterInitialization(Object bean, String beanName){   //! called for EVERY bean after it is made -> we swap the DataSource for a wrapped one
+                        if ("dataSource".equals(beanName) && bean instanceof DataSource dataSource && !(bean instanceof ProxyDataSource)){
+                            //! ONLY the bean named dataSource (Boot's own, or the @Primary routing one from Tutorial 6 LVL 3). Wrapping the Hikari pools
+                            //  under the routing DataSource too would log every statement twice
+                            return ProxyDataSourceBuilder.create(dataSource)
+                                    .name("student-db")
+                                    .listener(slowQueryLog.getObject())                 //! our listener gets every statement
+                                    .build();
+                        }
+                        return bean;
+                    }
+                };
+            }
+        }
+
+    // 4) Listener + async writer.................................................. MainPackage/StudentPackage/SlowQueryLog.java
+        @Component
+        public class SlowQueryLog implements QueryExecutionListener, SmartLifecycle {   //! SmartLifecycle -> start()/stop() with the app (runs our writer thread)
+            private static final Logger log = LoggerFactory.getLogger("student.sql.slow");   //! own logger name -> can send it to its own file/appender
+            private static final StackWalker WALKER = StackWalker.getInstance();
+
+            private final SlowQueryProperties properties;
+            private final BlockingQueue<String> buffer;                                 //! BOUNDED queue between request threads and the writer thread
+            private final Counter dropped;
+            private volatile Thread writer;
+
+            @Autowired
+            public SlowQueryLog(SlowQueryProperties properties, MeterRegistry meterRegistry){
+                this.properties = properties;
+                this.buffer = new ArrayBlockingQueue<>(properties.logBuffer());
+                this.dropped = Counter.builder("student.sql.log.dropped").register(meterRegistry);
+            }
+
+            @Override
+            public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList){}   // nothing to do before
+
+            @Override
+            public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList){
+                long ms = execInfo.getElapsedTime();
+                boolean slow = ms >= properties.slowMs();
+                if (!slow && ThreadLocalRandom.current().nextDouble() >= properties.sampleRate()){
+                    return;                                                             //! the common case: 1 compare + 1 random number, nothing else
+                }
+                String entry = String.format("%s %dms rows=%s caller=%s sql=[%s] params=%s",
+                        slow ? "SLOW" : "SAMPLE", ms, rows(execInfo), caller(),
+                        queryInfoList.stream().map(QueryInfo::getQuery).collect(Collectors.joining("; ")),
+                        params(queryInfoList));
+                if (!buffer.offer(entry)){                                              //! offer() -> false right away if full (put() would BLOCK the request)
+                    dropped.increment();
+                }
+            }
+
+            private static String rows(ExecutionInfo execInfo){
+                Object result = execInfo.getResult();
+                if (result instanceof Integer count) return String.valueOf(count);     // executeUpdate
+                if (result instanceof Long count) return String.valueOf(count);        // executeLargeUpdate
+                if (result instanceof int[] counts) return batchRows(Arrays.stream(counts).asLongStream());     // executeBatch
+                if (result instanceof long[] counts) return batchRows(Arrays.stream(counts));                   // executeLargeBatch
+                return "n/a";                                                           // SELECT (ResultSet not read yet)
+            }
+
+            private static String batchRows(LongStream counts){                        //! a batch entry can be Statement.SUCCESS_NO_INFO (-2) = "worked, count unknown"
+                long[] all = counts.toArray();                                          //  (Postgres with reWriteBatchedInserts, Oracle...) -> summing it gives nonsense like rows=-1000
+                if (Arrays.stream(all).anyMatch(c -> c == Statement.SUCCESS_NO_INFO)){
+                    return "unknown(batch=" + all.length + ")";
+                }
+                return String.valueOf(Arrays.stream(all).sum());                        // sum of the batch
+            }
+
+            private static String caller(){                                            // first StudentService frame on the stack -> "StudentService.registerStudent"
+                return WALKER.walk(frames -> frames
+                        .filter(f -> f.getClassName().endsWith(".StudentService"))
+                        .findFirst()
+                        .map(f -> "StudentService." + f.getMethodName())
+                        .orElse("?"));
+            }
+
+            private String params(List<QueryInfo> queryInfoList){
+                return queryInfoList.stream()
+                        .flatMap(q -> q.getParametersList().stream())                   //! 1 list per execution (a batch has several)
+                        .map(list -> list.stream()
+                                .map(ParameterSetOperation::getArgs)
+                                .map(args -> args.length > 1 ? args[1] : null)          // args[0] = index, args[1] = value
+                                .map(this::redact)
+                                .collect(Collectors.joining(", ", "(", ")")))
+                        .limit(5)                                                       // only the first 5 rows of a batch
+                        .collect(Collectors.joining(" "));
+            }
+
+            private String redact(Object value){
+                if (value == null) return "null";
+                if (!properties.redactParams()) return String.valueOf(value);
+                return value instanceof String s ? "String[" + s.length() + "]" : value.getClass().getSimpleName();   //! "String[15]" instead of "Tommy@gmail.com"
+            }
+
+            // writer thread
+            @Override
+            public void start(){
+                writer = Thread.ofPlatform().daemon().name("slow-query-log").start(() -> {
+                    try {
+                        while (!Thread.currentThread().isInterrupted()){
+                            log.info(buffer.take());                                    // waits for the next entry (only THIS thread ever waits)
+                        }
+                    } catch (InterruptedException e){
+                        Thread.currentThread().interrupt();
+                    }
+                });
+            }
+
+            @Override
+            public void stop(){
+                writer.interrupt();
+                try {
+                    writer.join(TimeUnit.SECONDS.toMillis(5));                          //! wait until the writer is really gone -> only 1 thread takes from the buffer
+                } catch (InterruptedException e){
+                    Thread.currentThread().interrupt();
+                }
+                List<String> left = new ArrayList<>();
+                buffer.drainTo(left);                                                   // THEN take what is left (drainTo removes them -> nothing written twice)
+                left.forEach(log::info);                                                // write what is left on shutdown
+            }
+
+            @Override
+            public boolean isRunning(){
+                return writer != null && writer.isAlive();
+            }
+        }
+
+    // Example lines (logger student.sql.slow):
+        SLOW 412ms rows=n/a caller=StudentService.getAgeHistogram sql=[SELECT CAST(date_part('year', age(current_date, dob)) AS int) AS age, count(*) ...] params=()
+        SAMPLE 3ms rows=1 caller=StudentService.registerStudent sql=[insert into student (dob,email,name,version,id) values (?,?,?,?,?)] params=(LocalDate, String[15], String[3], Long, Long)
+
+
+/*--------------------------------------- LVL 3 - JMH Benchmarks for StudentService (separate `student-benchmarks` module) ---------------------------------------
+    * "Did my change to StudentService make it faster?" -> need the SAME measurement before and after, on the SAME machine
+    * JMH (Java Microbenchmark Harness) = the standard tool. It handles warm up (JIT), forks a fresh JVM, runs threads, and does the stats
+    * What we run:
+        - the real Spring context (App.class) on embedded H2, no web server -> StudentService bean straight from the context
+        - registerStudent / getStudents / findStudentByEmail / deleteStudent
+        - @Param tableSize = 10k, 100k, 1M rows (seeded with the bulk seeder from Tutorial 4 LVL 5)
+        - thread counts from the command line (-t 1, -t 8, -t 32)
+        - Throughput (ops/s) + SampleTime (latency percentiles: p50, p99, p99.9)
+        - results as JSON -> 1 file per commit -> compare 2 files
+    * Own Maven module so JMH's annotation processor + shaded jar dont end up in the app                                              */
+
+    // 0) student-app/pom.xml -> keep the PLAIN jar as the main artifact
+        <plugin>
+            <groupId>org.springframework.boot</groupId>
+            <artifactId>spring-boot-maven-plugin</artifactId>
+            <configuration>
+                <classifier>exec</classifier>                                           <!-- repackage writes the fat jar as <finalName>-exec.jar. Without this the main jar has our
+                                                                                             classes under BOOT-INF/classes -> App is NOT on the classpath of anything depending on it -->
+            </configuration>
+        </plugin>
+
+    // student-benchmarks/pom.xml
+        <dependencies>
+            <dependency>
+                <groupId>MainPackage</groupId>
+                <artifactId>student-app</artifactId>                                    <!-- the app itself (plain jar, NOT the -exec one) -->
+                <version>${project.version}</version>
+            </dependency>
+            <dependency>
+                <groupId>com.h2database</groupId>
+                <artifactId>h2</artifactId>
+            </dependency>
+            <dependency>
+                <groupId>org.openjdk.jmh</groupId>
+                <artifactId>jmh-core</artifactId>
+                <version>1.37</version>
+            </dependency>
+            <dependency>
+                <groupId>org.openjdk.jmh</groupId>
+                <artifactId>jmh-generator-annprocess</artifactId>                       <!-- turns @Benchmark methods into runnable code at compile time -->
+                <version>1.37</version>
+                <scope>provided</scope>
+            </dependency>
+        </dependencies>
+        <build>
+            <plugins>
+                <plugin>
+                    <groupId>org.apache.maven.plugins</groupId>
+                    <artifactId>maven-shade-plugin</artifactId>                         <!-- builds target/benchmarks.jar with everything inside -->
+                    <dependencies>
+                        <dependency>                                                    <!-- for PropertiesMergingResourceTransformer -->
+                            <groupId>org.springframework.boot</groupId>
+                            <artifactId>spring-boot-maven-plugin</artifactId>
+                            <version>${spring-boot.version}</version>
+                        </dependency>
+                    </dependencies>
+                    <executions>
+                        <execution>
+                            <phase>package</phase>
+                            <goals><goal>shade</goal></goals>
+                            <configuration>
+                                <finalName>benchmarks</finalName>
+                                <transformers>
+                                    <transformer implementation="org.apache.maven.plugins.shade.resource.ManifestResourceTransformer">
+                                        <mainClass>org.openjdk.jmh.Main</mainClass>
+                                    </transformer>
+                                    <transformer implementation="org.apache.maven.plugins.shade.resource.ServicesResourceTransformer"/>   <!-- keep Spring's META-INF files working in the fat jar -->
+                                    <transformer implementation="org.apache.maven.plugins.shade.resource.AppendingTransformer">
+                                        <resource>META-INF/spring/org.springframework.boot.autoconfigure.AutoConfiguration.imports</resource>
+                                    </transformer>
+                                    <transformer implementation="org.springframework.boot.maven.PropertiesMergingResourceTransformer">
+                                        <resource>META-INF/spring.factories</resource>           <!-- every Spring jar has one -> MERGE the keys, else only 1 jar's listeners/initializers survive and App fails to boot -->
+                                    </transformer>
+                                    <transformer implementation="org.apache.maven.plugins.shade.resource.AppendingTransformer">
+                                        <resource>META-INF/spring.handlers</resource>
+                                    </transformer>
+                                    <transformer implementation="org.apache.maven.plugins.shade.resource.AppendingTransformer">
+                                        <resource>META-INF/spring.schemas</resource>
+                                    </transformer>
+                                </transformers>
+                            </configuration>
+                        </execution>
+                    </executions>
+                </plugin>
+            </plugins>
+        </build>
+
+    // 1) Benchmark................................................................ student-benchmarks/src/main/java/MainPackage/StudentPackage/StudentServiceBenchmark.java
+        @State(Scope.Benchmark)                                                         //! 1 Spring context shared by all benchmark threads
+        @BenchmarkMode({Mode.Throughput, Mode.SampleTime})                              //! ops/s AND latency percentiles
+        @OutputTimeUnit(TimeUnit.MICROSECONDS)
+        @Warmup(iterations = 3, time = 5)
+        @Measurement(iterations = 5, time = 10)
+        @Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})                          //! fresh JVM, fixed heap -> runs are comparable
+        public class StudentServiceBenchmark {
+            @Param({"10000", "100000", "1000000"})                                      //! JMH runs every benchmark once per table size
+            int tableSize;
+
+            ConfigurableApplicationContext context;
+            StudentService studentService;
+            JdbcTemplate jdbcTemplate;
+            final AtomicLong newEmails = new AtomicLong();
+
+            @Setup(Level.Trial)                                                         //! once per tableSize: start Spring + seed
+            public void startContext(){
+                context = new SpringApplicationBuilder(App.class)
+                        .web(WebApplicationType.NONE)                                   //! no Tomcat, we call the service directly
+                        .properties(
+                                "spring.datasource.url=jdbc:h2:mem:bench;DB_CLOSE_DELAY=-1",
+                                "spring.jpa.hibernate.ddl-auto=create-drop",
+                                "spring.jpa.show-sql=false",
+                                "student.seed.enabled=false",                           //! no seeding at all (not even Tom + Alex) -> empty table, we seed below
+                                "logging.level.root=WARN")
+                        .run();
+                studentService = context.getBean(StudentService.class);
+                jdbcTemplate = context.getBean(JdbcTemplate.class);
+                for (long from = 0; from < tableSize; from += 50_000){                  //! reuse the seeder pieces (Tutorial 4 LVL 5)
+                    int rows = (int) Math.min(50_000, tableSize - from);
+                    StudentBulkLoader.batchInsert(jdbcTemplate, StudentGenerator.generate(from + 1, rows, 42 + from));
+                }
+                jdbcTemplate.execute("ALTER SEQUENCE student_sequence RESTART WITH " + (tableSize + 1));
+            }
+
+            @TearDown(Level.Trial)
+            public void stopContext(){
+                context.close();
+            }
+
+            @State(Scope.Thread)                                                        //! 1 per benchmark thread -> no sharing between threads
+            public static class ThreadState {
+                final SplittableRandom random = new SplittableRandom();
+                long randomId(int tableSize){ return 1 + random.nextLong(tableSize); }
+            }
+
+            @State(Scope.Thread)
+            public static class DeleteState {
+                long id;
+                @Setup(Level.Invocation)                                                //! before EACH delete: insert a fresh row to delete (not timed). OK here since 1 op >> JMH's per-invocation overhead
+                public void insertVictim(StudentServiceBenchmark bench){
+                    id = bench.jdbcTemplate.queryForObject("SELECT nextval('student_sequence')", Long.class);
+                    bench.jdbcTemplate.update("INSERT INTO student (id, name, email, dob, version) VALUES (?, 'Victim', ?, DATE '2000-01-01', 0)",
+                            id, "victim." + id + "@gmail.com");
+                }
+            }
+
+            @Benchmark
+            public void registerStudent(){                                              //! new unique email every call (the table grows a little during the run)
+                long n = newEmails.incrementAndGet();
+                studentService.registerStudent(new Student("Bench", "bench." + n + "." + System.nanoTime() + "@gmail.com", LocalDate.of(2001, 1, 1)));
+            }
+
+            @Benchmark
+            public StudentPage getStudents(ThreadState state){                          //! return the result -> JMH "uses" it so the JIT cant remove the call
+                return studentService.getStudents(state.randomId(tableSize), 50);       // random keyset page of 50
+            }
+
+            @Benchmark
+            public Optional<Student> findStudentByEmail(ThreadState state){
+                long id = state.randomId(tableSize);
+                return studentService.findStudentByEmail(jdbcTemplate.queryForObject("SELECT email FROM student WHERE id = ?", String.class, id));
+            }
+
+            @Benchmark
+            public void deleteStudent(DeleteState victim){
+                studentService.deleteStudent(victim.id);
+            }
+        }
+        // !findStudentByEmail looks the email up by id first (a cheap PK query) so every thread asks for real, different emails. Its also counted in the time ->
+        //  for a clean number keep a pre-loaded String[] of emails in ThreadState instead (costs memory at 1M rows)
+
+    // 2) Run + save JSON (1 file per commit)
+        mvn -pl student-benchmarks -am package -DskipTests
+        java -jar student-benchmarks/target/benchmarks.jar -t 1 -rf json -rff bench/$(git rev-parse --short HEAD)-t1.json
+        java -jar student-benchmarks/target/benchmarks.jar -t 8 -rf json -rff bench/$(git rev-parse --short HEAD)-t8.json
+        java -jar student-benchmarks/target/benchmarks.jar StudentServiceBenchmark.getStudents -p tableSize=1000000 -t 32   //! just 1 benchmark + 1 size
+
+    // 3) Compare 2 commits
+        // Upload both JSON files to https://jmh.morethan.io (side by side charts), or diff the "primaryMetric.score" of each benchmark + params
+        jq -r '.[] | [.benchmark, .mode, .params.tableSize, .threads, .primaryMetric.score, .primaryMetric.scoreError] | @tsv' bench/abc1234-t8.json
+        // !A change only counts if the difference is bigger than scoreError (the 99.9% confidence interval JMH prints)
+
+
+/*--------------------------------------- LVL 4 - HTTP Load Test Harness for api/v1/student (open model + HdrHistogram) ---------------------------------------
+    * JMH (LVL 3) calls StudentService directly. This one goes through the REAL HTTP stack (Tomcat -> Jackson -> Controller -> ... -> H2)
+    * OPEN MODEL vs closed model:
+        closed -> N users, each sends the next request when the last one came back -> server slows down = tool sends LESS = looks fine (lies)
+        open   -> requests ARRIVE at a fixed rate (ex: 2000/s) no matter how slow the server is -> like real traffic from many independent clients
+    * COORDINATED OMISSION: if the server stalls for 1s, a closed tool just waits and records 1 slow request. Really ~2000 requests were stuck.
+        Fix: latency = (time the response came back) - (time the request was SUPPOSED to be sent), not the time it actually got sent
+    * HdrHistogram -> records every latency cheaply with fixed precision -> exact p50 / p99 / p99.9 / max (no averaging of percentiles)
+    * Mix: student.load.read-percent / write-percent / rest = delete
+        read   -> GET api/v1/student?after=<random id>&limit=50
+        write  -> POST api/v1/student with a new unique email
+        delete -> DELETE api/v1/student/<id of a student this run created>
+    * Report = plain text, same layout every run -> `diff loadtest/abc1234.txt loadtest/def5678.txt`                                      */
+
+    // 0) student-benchmarks/pom.xml (same module as LVL 3)
+        <dependency>
+            <groupId>org.hdrhistogram</groupId>
+            <artifactId>HdrHistogram</artifactId>
+            <version>2.2.2</version>
+        </dependency>
+
+    // 1) POST returns the new id (needed for the delete mix).................... MainPackage/StudentPackage/StudentController.java
+        // Already true since Tutorial 4 LVL 6 -> nothing to change, this is the handler the harness hits:
+        @PostMapping
+        public CompletableFuture<Long> registerStudent(@RequestBody Student student){
+            if (writeBehind.isPresent()){
+                return writeBehind.get().register(student);                             // group commit path -> completes with the id after the batch commits
+            }
+            studentService.registerStudent(student);                                    // normal path -> saveAndFlush sets the id on this same Student object
+            return CompletableFuture.completedFuture(student.getId());                  //! body = just the number on BOTH paths, ex: 10042
+        }
+        // !the write-behind path answers after up to window-ms -> run the harness with it on AND off, its latency shows up in the WRITE histogram
+
+    // 2) Harness.................................................................. student-benchmarks/src/main/java/MainPackage/StudentPackage/StudentLoadHarness.java
+        public class StudentLoadHarness {
+            enum Op { READ, WRITE, DELETE }
+
+            public static void main(String[] args) throws Exception {
+                int rate = Integer.getInteger("rate", 1000);                            //! requests per second (-Drate=2000)
+                int seconds = Integer.getInteger("seconds", 60);
+                int warmupSeconds = Integer.getInteger("warmup", 15);
+                int readPercent = Integer.getInteger("readPercent", 90);
+                int writePercent = Integer.getInteger("writePercent", 8);               // rest (2%) = delete
+                int tableSize = Integer.getInteger("tableSize", 100_000);
+                String report = System.getProperty("report", "loadtest/report.txt");
+
+                ConfigurableApplicationContext context = new SpringApplicationBuilder(App.class)   // 1) REAL app with Tomcat on a random port + embedded H2
+                        .properties(
+                                "server.port=0",
+                                "spring.datasource.url=jdbc:h2:mem:load;DB_CLOSE_DELAY=-1",
+                                "spring.jpa.show-sql=false",
+                                "student.seed.enabled=true",                            //! bulk seeder from Tutorial 4 LVL 5
+                                "student.seed.count=" + tableSize,
+                                "student.seed.threads=4",                               //! set all of them -> the run never depends on defaults changing under it
+                                "student.seed.chunk-size=10000",
+                                "student.seed.random-seed=42",                          //! same rows every run -> reports are comparable
+                                "logging.level.root=WARN")
+                        .run();
+                int port = ((ServletWebServerApplicationContext) context).getWebServer().getPort();
+                String base = "http://localhost:" + port + "/api/v1/student";
+
+                HttpClient client = HttpClient.newBuilder()
+                        .executor(Executors.newVirtualThreadPerTaskExecutor())          //! client side never runs out of threads -> it cant become the bottleneck
+                        .build();
+                ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor();
+
+                run(client, senders, base, rate, warmupSeconds, readPercent, writePercent, tableSize, null);   // 2) warm up (JIT, pools) -> results thrown away
+                Map<Op, Histogram> histograms = new EnumMap<>(Op.class);
+                Map<Op, LongAdder> errors = new EnumMap<>(Op.class);
+                for (Op op : Op.values()){
+                    histograms.put(op, new ConcurrentHistogram(TimeUnit.MINUTES.toNanos(1), 3));   //! 1ns .. 1min, 3 significant digits
+                    errors.put(op, new LongAdder());
+                }
+                long started = System.nanoTime();
+                run(client, senders, base, rate, seconds, readPercent, writePercent, tableSize, new Results(histograms, errors));   // 3) the real run
+                double elapsed = (System.nanoTime() - started) / 1e9;
+
+                writeReport(Path.of(report), rate, seconds, readPercent, writePercent, tableSize, elapsed, histograms, errors);   // 4) report
+                senders.shutdown();
+                senders.awaitTermination(1, TimeUnit.MINUTES);
+                context.close();
+            }
+
+            record Results(Map<Op, Histogram> histograms, Map<Op, LongAdder> errors) {}
+
+            static void run(HttpClient client, ExecutorService senders, String base, int rate, int seconds,
+                            int readPercent, int writePercent, int tableSize, Results results) throws InterruptedException {
+                long interval = 1_000_000_000L / rate;                                  //! ns between 2 arrivals
+                long total = (long) rate * seconds;
+                long start = System.nanoTime();
+                Queue<Long> createdIds = new ConcurrentLinkedQueue<>();                 // ids this run created -> something to delete
+                SplittableRandom random = new SplittableRandom(42);
+                CountDownLatch done = new CountDownLatch((int) total);
+
+                for (long i = 0; i < total; i++){
+                    long intended = start + i * interval;                               //! when request i SHOULD go out (fixed schedule = open model)
+                    long wait = intended - System.nanoTime();
+                    if (wait > 0) LockSupport.parkNanos(wait);                          //! behind schedule -> send right away, dont skip (the lateness is counted below)
+
+                    int dice = random.nextInt(100);
+                    Op op = dice < readPercent ? Op.READ : dice < readPercent + writePercent ? Op.WRITE : Op.DELETE;
+                    long randomId = 1 + random.nextLong(tableSize);
+                    senders.execute(() -> {                                             //! each request on its own virtual thread -> a slow response never delays the next arrival
+                        try {
+                            HttpResponse<String> response = client.send(request(op, base, randomId, createdIds), HttpResponse.BodyHandlers.ofString());
+                            long latency = System.nanoTime() - intended;                //! COORDINATED OMISSION FIX: measured from the INTENDED start
+                            if (results != null){
+                                if (response.statusCode() >= 400) results.errors().get(op).increment();
+                                results.histograms().get(op).recordValue(latency);
+                            }
+                            if (op == Op.WRITE && response.statusCode() == 200){
+                                Long id = parseId(response.body());                     // POST returns the new id (step 1)
+                                if (id != null) createdIds.add(id);                     //! no/odd body is NOT a request error -> just nothing to delete later
+                            }
+                        } catch (Exception e){
+                            if (results != null) results.errors().get(op).increment();
+                        } finally {
+                            done.countDown();
+                        }
+                    });
+                }
+                done.await(2, TimeUnit.MINUTES);                                        // let the in-flight requests finish
+            }
+
+            static Long parseId(String body){
+                try {
+                    return Long.parseLong(body.trim());
+                } catch (NumberFormatException e){
+                    return null;
+                }
+            }
+
+            static HttpRequest request(Op op, String base, long randomId, Queue<Long> createdIds){
+                return switch (op){
+                    case READ -> HttpRequest.newBuilder(URI.create(base + "?after=" + randomId + "&limit=50")).GET().build();
+                    case WRITE -> HttpRequest.newBuilder(URI.create(base))
+                            .header("Content-Type", "application/json")
+                            .POST(HttpRequest.BodyPublishers.ofString(
+                                    "{\"name\":\"Load\",\"email\":\"load." + UUID.randomUUID() + "@gmail.com\",\"dob\":\"2001-01-01\"}"))
+                            .build();
+                    case DELETE -> {
+                        Long id = createdIds.poll();                                    // nothing created yet -> delete a random id (may 500 "does not exist", counted as an error)
+                        yield HttpRequest.newBuilder(URI.create(base + "/" + (id != null ? id : randomId))).DELETE().build();
+                    }
+                };
+            }
+
+            static void writeReport(Path path, int rate, int seconds, int readPercent, int writePercent, int tableSize, double elapsed,
+                                    Map<Op, Histogram> histograms, Map<Op, LongAdder> errors) throws IOException {
+                StringBuilder out = new StringBuilder();
+                out.append(String.format("target rate=%d/s duration=%ds mix=read %d%% / write %d%% / delete %d%% tableSize=%d%n",
+                        rate, seconds, readPercent, writePercent, 100 - readPercent - writePercent, tableSize));
+                out.append(String.format("%-7s %9s %8s %10s %10s %10s %10s %10s%n", "op", "count", "errors", "rate/s", "p50 ms", "p99 ms", "p99.9 ms", "max ms"));
+                for (Op op : Op.values()){
+                    Histogram h = histograms.get(op);
+                    out.append(String.format("%-7s %9d %8d %10.1f %10.2f %10.2f %10.2f %10.2f%n",
+                            op, h.getTotalCount(), errors.get(op).sum(), h.getTotalCount() / elapsed,
+                            h.getValueAtPercentile(50) / 1e6, h.getValueAtPercentile(99) / 1e6,
+                            h.getValueAtPercentile(99.9) / 1e6, h.getMaxValue() / 1e6));
+                }
+                Files.createDirectories(path.toAbsolutePath().getParent());
+                Files.writeString(path, out);
+                System.out.print(out);
+            }
+        }
+
+    // 3) Run (1 report per commit)
+        mvn -pl student-benchmarks -am package -DskipTests
+        java -Drate=2000 -Dseconds=120 -DreadPercent=90 -DwritePercent=8 -Dreport=loadtest/$(git rev-parse --short HEAD).txt \
+             -cp student-benchmarks/target/benchmarks.jar MainPackage.StudentPackage.StudentLoadHarness
+        diff loadtest/abc1234.txt loadtest/def5678.txt
+        // !Finding capacity: run at 500, 1000, 2000, 4000 req/s -> the rate where p99 jumps (or errors start) is the limit of 1 instance
+        // !Load generator + app on the SAME machine share CPU -> fine for comparing commits, not for absolute capacity numbers
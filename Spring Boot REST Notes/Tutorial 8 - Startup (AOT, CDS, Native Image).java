@@ -0,0 +1,311 @@
+/* Starting the student service FAST (autoscaling: a new instance is useless until it answers its 1st request)
+    * What SpringApplication.run(App.class, args) does on every boot:
+        1) scans the classpath for @Component/@Service/@Repository/@Configuration    -> reflection over every class in MainPackage
+        2) evaluates every auto-configuration + @Conditional                          -> 100s of classes loaded and checked
+        3) makes the JPA metamodel + Spring Data repository proxies                   -> Hibernate reads all entities, asks the db for metadata
+        4) ddl-auto=create-drop                                                       -> DROP + CREATE the tables on every start (also wipes the data!)
+        5) our own startup work: seeder, search index rebuild (Tutorial 3 LVL 6)
+      + the JVM loads/verifies ~10,000 classes from jars every time
+    * Each LVL below removes 1 of those costs
+
+--------------------------------------- LVL 1 - `startup` Profile: AOT + CDS + Lazy Init + Flyway Schema ---------------------------------------
+    * AOT (ahead of time) processing, at BUILD time Spring runs steps 1-2 once and writes the result as plain Java code
+        (bean definitions as `new StudentService(...)` calls) -> at runtime: no scanning, no condition checks. Turn on with -Dspring.aot.enabled=true
+        !Profiles + @ConditionalOnProperty are decided at BUILD time -> build with the same profile you run with
+    * CDS (Class Data Sharing) / AppCDS: a training run writes the parsed + verified classes to an archive (app.jsa) -> next starts map it
+      from disk instead of loading classes from jars. Made at build time, must be used with the SAME JDK + SAME jar
+    * LAZY INIT for non-critical beans: only made when first used. Critical ones (DataSource, JPA, StudentController/Service) stay EAGER
+      -> otherwise the 1st request pays the startup cost and time-to-first-request gets WORSE
+    * ddl-auto=none: schema comes from migrations (Flyway), Hibernate doesnt touch it. No DROP/CREATE
+        !not `validate` -> validate reads the table/column metadata from the db = exactly the boot round trips allow_jdbc_metadata_access=false turns off
+         (and with that flag off, validate has nothing to compare against). Check the schema in a test instead (Flyway migrate + ddl-auto=validate on H2)
+    * hibernate.boot.allow_jdbc_metadata_access=false: Hibernate stops asking the db for metadata at boot (dialect is set by hand)        */
+
+    // 1) application-startup.properties
+        spring.jpa.hibernate.ddl-auto=none                                              //! was create-drop
+        spring.flyway.enabled=true                                                      //! schema from src/main/resources/db/migration/V1__student.sql
+        spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.PostgreSQLDialect
+        spring.jpa.properties.hibernate.boot.allow_jdbc_metadata_access=false           //! no db round trips while Hibernate boots
+        spring.jpa.open-in-view=false
+        spring.main.lazy-initialization=true                                            //! everything lazy... except the beans in StartupConfig below
+        spring.jmx.enabled=false
+        student.seed.enabled=false                                                      //! never seed on a scaled out instance -> false = neither Tom + Alex nor the bulk seeder (Tutorial 4 LVL 5)
+        student.search.rebuild-async=true                                               //! dont hold up startup for the search index (see 3)
+
+    // 1b) First migration.......................................................... src/main/resources/db/migration/V1__student.sql
+        -- everything ddl-auto used to make from Student (Tutorial 3 LVL 3, Tutorial 4 LVL 1 / 2 / 4)
+        CREATE SEQUENCE student_sequence START WITH 1 INCREMENT BY 50;                  -- INCREMENT = allocationSize (pooled-lo)
+        CREATE TABLE student (
+            id      BIGINT       PRIMARY KEY,                                           -- Hibernate gives the id (from the sequence), no DEFAULT needed
+            name    VARCHAR(255),
+            email   VARCHAR(255) NOT NULL,
+            dob     DATE,
+            version BIGINT       NOT NULL DEFAULT 0,                                    -- @Version (optimistic locking)
+            CONSTRAINT student_email_unique UNIQUE (email)                              -- name matters: isEmailConflict() looks for it
+        );
+        CREATE INDEX student_dob_idx ON student (dob);                                  -- ?minAge=&maxAge= + the age histogram
+        // !Existing db made by ddl-auto earlier -> spring.flyway.baseline-on-migrate=true + spring.flyway.baseline-version=1 so V1 isnt run on top of it
+
+    // 2) Keep the request path eager.............................................. MainPackage/StudentPackage/StartupConfig.java
+        @Configuration
+        @Profile("startup")
+        public class StartupConfig {
+            @Bean
+            static LazyInitializationExcludeFilter eagerStudentBeans(){                 //! these are made at startup even with lazy-initialization=true
+                return LazyInitializationExcludeFilter.forBeanTypes(
+                        DataSource.class,                                               // pool + 1st connection ready
+                        EntityManagerFactory.class,                                     // Hibernate booted (schema from Flyway)
+                        StudentController.class,                                        // -> pulls in StudentService + StudentRepository
+                        StudentCache.class);
+            }
+        }
+
+    // 3) Search index off the startup path........................................ MainPackage/StudentPackage/StudentSearchIndexer.java
+        // + constructor param: @Value("${student.search.rebuild-async:false}") boolean rebuildAsync  (false = old behaviour)
+        @EventListener(ApplicationReadyEvent.class)
+        public void rebuild(){
+            if (rebuildAsync){
+                Thread.ofVirtual().name("search-index-rebuild").start(this::doRebuild);  //! app is READY right away, search fills in within seconds
+            } else {
+                doRebuild();
+            }
+        }
+        // !While it builds, /search returns fewer results. Live register/update/delete still go in via afterCommit
+
+    // 4) pom.xml -> `startup` Maven profile (AOT + CDS archive at build time)
+        <profile>
+            <id>startup</id>
+            <build>
+                <finalName>student-app</finalName>                                      <!-- fixed name (no version) -> the fat jar is ALWAYS target/student-app-exec.jar,
+                                                                                             the name every command below uses -->
+                <plugins>
+                    <plugin>
+                        <groupId>org.springframework.boot</groupId>
+                        <artifactId>spring-boot-maven-plugin</artifactId>
+                        <executions>
+                            <execution>
+                                <id>process-aot</id>
+                                <goals><goal>process-aot</goal></goals>                 <!-- writes the generated bean definitions into the jar -->
+                                <configuration>
+                                    <profiles>startup</profiles>                        <!-- same profile as at runtime -> AOT reads application-startup.properties, so
+                                                                                             student.seed.enabled=false is what the @ConditionalOnProperty seed runners are decided on.
+                                                                                             Changing it later with -D or env vars does NOTHING in an AOT build -->
+                                </configuration>
+                            </execution>
+                        </executions>
+                    </plugin>
+                    <plugin>
+                        <groupId>org.codehaus.mojo</groupId>
+                        <artifactId>exec-maven-plugin</artifactId>
+                        <executions>
+                            <execution>
+                                <id>extract-jar</id>                                    <!-- CDS needs the classes in plain jars, not nested in the fat jar -->
+                                <phase>package</phase>
+                                <goals><goal>exec</goal></goals>
+                                <configuration>
+                                    <executable>java</executable>
+                                    <arguments>
+                                        <argument>-Djarmode=tools</argument>
+                                        <argument>-jar</argument>
+                                        <argument>${project.build.directory}/${project.build.finalName}-exec.jar</argument>   <!-- the RUNNABLE jar = -exec classifier (Tutorial 7 LVL 3) -->
+                                        <argument>extract</argument>
+                                        <argument>--destination</argument>
+                                        <argument>${project.build.directory}/app</argument>
+                                    </arguments>
+                                </configuration>
+                            </execution>
+                            <execution>
+                                <id>cds-training-run</id>                               <!-- starts the app, stops right after the context is refreshed, dumps the archive -->
+                                <phase>package</phase>
+                                <goals><goal>exec</goal></goals>
+                                <configuration>
+                                    <executable>java</executable>
+                                    <workingDirectory>${project.build.directory}/app</workingDirectory>
+                                    <arguments>
+                                        <argument>-XX:ArchiveClassesAtExit=app.jsa</argument>
+                                        <argument>-Dspring.aot.enabled=true</argument>
+                                        <argument>-Dspring.context.exit=onRefresh</argument>   <!-- exit after startup, dont serve -->
+                                        <argument>-Dspring.profiles.active=startup</argument>
+                                        <argument>-jar</argument>
+                                        <argument>${project.build.finalName}-exec.jar</argument>
+                                    </arguments>
+                                </configuration>
+                            </execution>
+                        </executions>
+                    </plugin>
+                </plugins>
+            </build>
+        </profile>
+        // !The training run boots the context -> it needs a reachable db (or point it at an embedded one with -Dspring.datasource.url=...)
+
+    // 5) Run
+        mvn -Pstartup package
+        cd target/app
+        java -XX:SharedArchiveFile=app.jsa -Dspring.aot.enabled=true -Dspring.profiles.active=startup -jar student-app-exec.jar
+
+
+/*  Startup Benchmark: time to FIRST successful request (not just "Started App in x seconds" -> that line comes before the 1st request works)
+    * Script: start the JVM, poll until GET api/v1/student?limit=1 answers 200, print the ms, kill it. 10 runs per mode, keep the median      */
+
+    // scripts/startup-bench.sh
+        #!/usr/bin/env bash
+        # usage: scripts/startup-bench.sh <label> <java args...>
+        label=$1; shift
+        for run in $(seq 1 10); do
+            start=$(date +%s%N)
+            java "$@" --server.port=8089 > /dev/null 2>&1 &
+            pid=$!
+            until curl -sf -o /dev/null "http://localhost:8089/api/v1/student?limit=1"; do sleep 0.01; done
+            echo "$label,$run,$(( ($(date +%s%N) - start) / 1000000 ))"                # label,run,ms to first 200
+            kill $pid; wait $pid 2>/dev/null
+        done
+
+    // compare (same machine, same db, same jar version):
+        scripts/startup-bench.sh baseline  -jar target/student-app-exec.jar                                                   >> startup.csv
+        scripts/startup-bench.sh profile   -Dspring.profiles.active=startup -jar target/student-app-exec.jar                  >> startup.csv
+        scripts/startup-bench.sh aot       -Dspring.aot.enabled=true -Dspring.profiles.active=startup -jar target/app/student-app-exec.jar   >> startup.csv
+        scripts/startup-bench.sh aot+cds   -XX:SharedArchiveFile=target/app/app.jsa -Dspring.aot.enabled=true -Dspring.profiles.active=startup -jar target/app/student-app-exec.jar >> startup.csv
+
+    // read it: median + p90 per label from startup.csv
+        sort -t, -k1,1 -k3,3n startup.csv | awk -F, '{ms[$1]=ms[$1] " " $3; n[$1]++} END {for (l in ms){split(substr(ms[l],2), v, " "); print l, "median=" v[int((n[l]+1)/2)], "p90=" v[int(n[l]*0.9+0.5)]}}'
+        // !No numbers written down here on purpose -> they only mean something for the machine + db + jar they came from. Keep startup.csv next to the commit you measured
+        // !baseline also pays create-drop -> compare `profile` vs `aot` vs `aot+cds` to see what AOT/CDS alone buy
+
+
+/*--------------------------------------- LVL 2 - GraalVM Native Image (scale to zero) ---------------------------------------
+    * native-image compiles App + Spring + Hibernate + everything it can REACH into 1 machine code executable at build time
+        -> no JVM, no class loading, no JIT warm up -> starts in tens of ms, uses a fraction of the RAM
+    * The catch: CLOSED WORLD -> only code/classes found at build time exist. Reflection, JDK proxies, resources, and runtime made classes
+      must be known up front ("hints"). Spring AOT (LVL 1) writes MOST hints for us:
+        @Entity Student                             -> JPA managed types + Hibernate reflection                      (Spring AOT + Hibernate's own native support)
+        StudentRepository (Spring Data proxy)       -> repository proxy + query methods (@Query findStudentByEmail)   (Spring AOT)
+        @Configuration classes                      -> CGLIB subclasses generated at BUILD time                        (Spring AOT)
+        @Scope(proxyMode = TARGET_CLASS) beans      -> the scoped proxy class is also generated at build time          (Spring AOT)
+          (ex: the prototype BinarySearch from the Udemy notes) -> works as long as the class isnt final and the bean is known at AOT time
+        Controller @RequestBody / return types      -> Jackson reflection for Student, StudentPage, StudentUpdate...     (Spring AOT)
+          !only for DECLARED types -> GET api/v1/student returns Object (1 handler, 3 formats) -> StudentPage + Student are registered by hand below
+      What WE have to add (AOT cant see it):
+        ehcache.xml (Tutorial 5 LVL 3)               -> resource hint
+        datasource-proxy (Tutorial 7 LVL 2)          -> JDK proxies of Connection/Statement/ResultSet made at runtime -> proxy hints
+        Jackson types only used by hand              -> StudentChange (SSE data), Hit (search)
+        Spring Data interface projections            -> DobCount (Tutorial 3 LVL 3) is a JDK proxy made at runtime
+        Protobuf generated classes (Tutorial 3 LVL 5)-> reflection on the generated messages
+    * !Not for the native build: Mockito in tests, JMH module, the LVL 1 CDS archive (native doesnt need it)                               */
+
+    // 1) Hints.................................................................... MainPackage/StudentPackage/StudentRuntimeHints.java
+        public class StudentRuntimeHints implements RuntimeHintsRegistrar {           //! Spring calls this at AOT time and writes the hints into the native build
+            @Override
+            public void registerHints(RuntimeHints hints, ClassLoader classLoader){
+                hints.resources().registerPattern("ehcache.xml");                       // read at runtime by Ehcache
+
+                for (Class<?> jdbcType : List.of(Connection.class, Statement.class, PreparedStatement.class, CallableStatement.class, ResultSet.class)){
+                    hints.proxies().registerJdkProxy(jdbcType, ProxyJdbcObject.class);  //! datasource-proxy wraps each JDBC object in a JDK proxy implementing these 2 interfaces
+                }
+
+                hints.reflection().registerType(StudentProtos.StudentMessage.class, MemberCategory.INVOKE_PUBLIC_METHODS);
+                hints.reflection().registerType(StudentProtos.StudentPageMessage.class, MemberCategory.INVOKE_PUBLIC_METHODS);
+                hints.proxies().registerJdkProxy(DobCount.class,                       //! interface projection (Tutorial 3 LVL 3) -> Spring Data makes a JDK proxy for it
+                        TargetAware.class, SpringProxy.class, DecoratingProxy.class);
+            }
+        }
+
+        // register it (+ Jackson types that only show up inside SseEmitter / generic returns)
+        @SpringBootApplication
+        @ImportRuntimeHints(StudentRuntimeHints.class)
+        @RegisterReflectionForBinding({StudentPage.class, Student.class, StudentChange.class, StudentSearchIndex.Hit.class, StudentBatchResult.class, StudentFieldsPage.class})   //! Jackson can (de)serialize these in the native image
+        public class App {
+            public static void main(String[] args){
+                SpringApplication.run(App.class, args);
+            }
+        }
+
+    // 2) pom.xml (spring-boot-starter-parent already has a `native` profile)
+        <plugin>
+            <groupId>org.graalvm.buildtools</groupId>
+            <artifactId>native-maven-plugin</artifactId>                                <!-- version managed by spring-boot-starter-parent -->
+            <configuration>
+                <imageName>student-app</imageName>
+                <buildArgs>
+                    <buildArg>--gc=serial</buildArg>                                    <!-- small heap, fastest start (G1 only on GraalVM EE / Oracle GraalVM) -->
+                    <buildArg>-march=compatibility</buildArg>                           <!-- runs on any x86-64, not just the build machine's CPU -->
+                </buildArgs>
+            </configuration>
+        </plugin>
+
+        <profile>                                                                       <!-- add to the parent's `native` profile (same id -> Maven merges them) -->
+            <id>native</id>
+            <dependencies>
+                <dependency>                                                            <!-- H2 is test scoped / only in student-benchmarks everywhere else. native:compile only sees
+                                                                                             the RUNTIME classpath -> without this the executable has no H2 driver and the IT below cant boot.
+                                                                                             Production native builds against Postgres can leave it out -->
+                    <groupId>com.h2database</groupId>
+                    <artifactId>h2</artifactId>
+                    <scope>runtime</scope>
+                </dependency>
+            </dependencies>
+        </profile>
+
+        // build (needs GraalVM JDK 21+ as JAVA_HOME, takes a few minutes + several GB of RAM):
+        mvn -Pnative -DskipTests native:compile                                        //! -> target/student-app (1 executable)
+
+    // 3) Tests
+        // a) Run the JUnit tests AS a native image (catches missing hints in the code paths the tests cover)
+        mvn -PnativeTest test                                                           //! compiles the test classes + app to native, runs them (H2 is native-friendly)
+
+        // b) Boot the real executable against embedded H2 and hit it.............. src/test/java/MainPackage/StudentPackage/NativeExecutableIT.java
+        @EnabledIfSystemProperty(named = "native.executable", matches = ".+")          //! only when the path is passed: mvn verify -Dnative.executable=target/student-app
+        class NativeExecutableIT {
+            @Test
+            void bootsAndServesStudents() throws Exception {
+                Process app = new ProcessBuilder(System.getProperty("native.executable"),
+                        "--server.port=8089",
+                        "--spring.datasource.url=jdbc:h2:mem:native;DB_CLOSE_DELAY=-1", //! embedded db inside the native app
+                        "--spring.jpa.hibernate.ddl-auto=create-drop")                  // plain property values like these still work at runtime
+                        //! ONE DataSource: the read/write routing (Tutorial 6 LVL 3) is @ConditionalOnProperty(spring.datasource.replica.url) and the
+                        //  native build doesnt set it -> routing is compiled OUT, Boot's own DataSource is the only one, this URL is all it needs.
+                        //  A build WITH replica.url set would compile routing IN -> then it needs both URLs at runtime (and Postgres, not H2)
+                        .inheritIO()
+                        .start();
+                try {
+                    HttpClient client = HttpClient.newHttpClient();
+                    long start = System.nanoTime();
+                    HttpResponse<String> response = null;
+                    while (System.nanoTime() - start < TimeUnit.SECONDS.toNanos(10)){  // wait for the port
+                        try {
+                            response = client.send(HttpRequest.newBuilder(URI.create("http://localhost:8089/api/v1/student?limit=1")).build(),
+                                    HttpResponse.BodyHandlers.ofString());
+                            break;
+                        } catch (ConnectException notYet){
+                            Thread.sleep(5);
+                        }
+                    }
+                    assertThat(response).isNotNull();
+                    assertThat(response.statusCode()).isEqualTo(200);                   // Tom + Alex from StudentConfig -> JPA, repository proxy, Jackson all work natively
+                    assertThat(response.body()).contains("Tommy@gmail.com");            //! Tom is only there because of the BUILD TIME default: -Pnative runs AOT without the
+                                                                                        //  `startup` profile -> student.seed.enabled not set -> `dev` -> the Tom + Alex runner is
+                                                                                        //  compiled in. --student.seed.enabled=... at RUNTIME would change nothing (conditions are frozen, see LVL 1)
+
+                    HttpResponse<String> created = client.send(HttpRequest.newBuilder(URI.create("http://localhost:8089/api/v1/student"))
+                            .header("Content-Type", "application/json")
+                            .POST(HttpRequest.BodyPublishers.ofString("{\"name\":\"Ella\",\"email\":\"ella@gmail.com\",\"dob\":\"2002-03-04\"}"))
+                            .build(), HttpResponse.BodyHandlers.ofString());
+                    assertThat(created.statusCode()).isEqualTo(200);
+                } finally {
+                    app.destroy();
+                    app.waitFor();
+                }
+            }
+        }
+
+    // 4) Record the numbers NEXT TO the JVM ones (same startup.csv as LVL 1, + memory)
+        scripts/startup-bench.sh native ... -> startup-bench.sh runs `java "$@"`, for native call the binary instead:
+        scripts/startup-bench-native.sh     -> same loop with `target/student-app --server.port=8089 &`, and after the 1st 200:
+            rss_kb=$(ps -o rss= -p $pid)                                                //! resident memory after the 1st request
+            echo "$label,$run,$ms,$rss_kb"
+
+        | mode                       | median ms to 1st 200 | p90 ms | RSS after 1st request (MB) |
+        | JVM baseline               |                      |        |                            |
+        | JVM + AOT + CDS (LVL 1)    |                      |        |                            |
+        | native (LVL 2)             |                      |        |                            |
+        // !Fill in from real runs on the target machine type. Native = much faster start + lower RSS, but peak throughput after warm up is
+        //  usually LOWER than the JIT'd JVM (no profile guided optimization unless you use Oracle GraalVM PGO) -> run the Tutorial 7 load test on both